@@ -2,8 +2,19 @@ package de.nqueensfaf.core;
 
 import static de.nqueensfaf.core.ExecutionState.*;
 
+import java.util.List;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 
 /**
@@ -11,6 +22,9 @@ import java.util.function.Consumer;
  * to minimize the effort required to implement this interface. It wraps the
  * {@link Solver#solve()}, keeping the {@link ExecutionState} updated and
  * providing the possibility to define callbacks for certain events.
+ * <p>
+ * Any number of {@link SolverListener}s can be added, each of them receives the
+ * events on its own executor (see {@link #addListener(SolverListener)}).
  * 
  * @see Solver
  */
@@ -18,6 +32,10 @@ public abstract class AbstractSolver implements Solver {
 
     private int n = 0;
     private volatile ExecutionState executionState = NOT_INITIALIZED;
+    private volatile boolean cancelRequested;
+    // guards the transitions from and to PAUSED, the paused workers wait on it
+    private final Object pauseLock = new Object();
+    private long pauseStart, pausedDuration;
 
     private Runnable onStart = () -> {
     };
@@ -30,18 +48,39 @@ public abstract class AbstractSolver implements Solver {
     private int updateInterval = 200;
     private Timer timer;
 
+    private volatile ProgressPublisher progressPublisher; // see progressPublisher()
+    private final List<ListenerRegistration> listeners = new CopyOnWriteArrayList<ListenerRegistration>();
+    // delivers the progress updates to the onProgressUpdate callback
+    private final ListenerRegistration progressCallback = new ListenerRegistration(new SolverListener() {
+	@Override
+	public void onProgressUpdate(ProgressSnapshot snapshot) {
+	    onProgressUpdate.accept(snapshot.progress(), snapshot.solutions(), snapshot.duration());
+	}
+    }, null);
+
     @Override
     public void setN(int n) {
 	if (executionState.isBusy()) {
 	    throw new IllegalStateException("could not set board size: solver has already started");
 	}
-	if (n <= 0 || n > 31) {
-	    throw new IllegalArgumentException(
-		    "could not set board size: " + n + " is not a number between 0 and 32 (exclusive)");
+	if (n <= 0 || n > getMaxN()) {
+	    throw new IllegalArgumentException("could not set board size: " + n
+		    + " is not a number between 0 and " + (getMaxN() + 1) + " (exclusive)");
 	}
 	this.n = n;
     }
 
+    /**
+     * Returns the biggest board size that the solver supports. Solvers that store
+     * the rows of the board in an {@code int} support board sizes up to 31, which
+     * is the default.
+     * 
+     * @return the biggest supported value of {@code n}.
+     */
+    protected int getMaxN() {
+	return 31;
+    }
+
     @Override
     public final int getN() {
 	return n;
@@ -53,47 +92,316 @@ public abstract class AbstractSolver implements Solver {
      * the {@link Solver} starts, finishes or when it makes progress. The progress
      * is tracked by a background thread that continuously queries the solution
      * count, the progress and the duration of the {@link Solver}.
+     * <p>
+     * The callbacks {@link #onStart(Runnable)}, {@link #onFinish(Runnable)} and
+     * {@link #onCancel(Consumer)} run in the calling thread. The progress updates
+     * and the events of the listeners are delivered by their executors, so the
+     * tracking thread never waits for them.
+     * <p>
+     * If the solver was stopped by {@link #cancel()}, the onCancel callback
+     * receives a {@link CancellationException} and this method returns normally.
      * 
      * @see ExecutionState
      */
     public final void start() {
 	preconditions();
 
-	executionState = STARTING;
+	cancelRequested = false;
+	synchronized (pauseLock) {
+	    pausedDuration = 0;
+	}
+	setExecutionState(STARTING);
 
 	onStart.run();
+	fireEvent(SolverListener::onStart);
 
 	if (updateInterval > 0) { // if updateInterval is 0, it means disable progress updates
 	    timer = new Timer();
 	    timer.schedule(new TimerTask() {
 		@Override
 		public void run() {
-		    if(executionState != RUNNING || getProgress() >= 1f)
+		    if (executionState != RUNNING)
 			return;
-		    onProgressUpdate.accept(getProgress(), getSolutions(), getDuration());
+		    var snapshot = getProgressSnapshot();
+		    if (snapshot.progress() >= 1f)
+			return;
+		    publishProgress(snapshot);
 		}
 	    }, 0, updateInterval);
 	}
 
-	executionState = RUNNING;
+	setExecutionState(RUNNING);
 	try {
 	    solve();
 	} catch (Exception e) {
-	    executionState = CANCELED;
+	    setExecutionState(CANCELED);
+	    if (timer != null)
+		timer.cancel();
+	    if (e instanceof CancellationException) {
+		// stopped by cancel(), the progress so far is still valid
+		if (updateInterval > 0) {
+		    publishProgress(getProgressSnapshot());
+		    progressCallback.awaitDelivery();
+		}
+		onCancel.accept(e);
+		fireEvent(listener -> listener.onCancel(e));
+		return;
+	    }
 	    onCancel.accept(e);
+	    fireEvent(listener -> listener.onCancel(e));
 	    throw new RuntimeException("error while running solver: " + e.getMessage(), e);
 	}
 
-	executionState = TERMINATING;
+	setExecutionState(TERMINATING);
 
 	if (updateInterval > 0) {
 	    timer.cancel();
-	    onProgressUpdate.accept(getProgress(), getSolutions(), getDuration()); // one last update
+	    publishProgress(getProgressSnapshot()); // one last update
+	    // the last update of the callback comes before onFinish
+	    progressCallback.awaitDelivery();
 	}
 
 	onFinish.run();
+	fireEvent(SolverListener::onFinish);
+
+	setExecutionState(FINISHED);
+    }
+
+    /**
+     * Requests the solver to stop. The implementation of {@link Solver#solve()}
+     * checks {@link #isCancelRequested()} regularly and, when it is set, stops its
+     * threads and throws a {@link CancellationException}. Solvers that finish
+     * before they notice the request finish normally.
+     * 
+     * @see Solver#cancel()
+     */
+    @Override
+    public final void cancel() {
+	synchronized (pauseLock) {
+	    if (executionState.isBusy()) {
+		cancelRequested = true;
+		pauseLock.notifyAll(); // paused workers have to stop as well
+	    }
+	}
+    }
+
+    /**
+     * Pauses the solver. The implementation of {@link Solver#solve()} calls
+     * {@link #awaitResume()} between its pieces of work, so its threads finish what
+     * they are working on and then wait until {@link #resume()} is called. No
+     * progress updates are delivered while the solver is paused and the paused
+     * time does not count into the duration (see {@link #getPausedDuration()}).
+     * 
+     * @see Solver#pause()
+     */
+    @Override
+    public final void pause() {
+	synchronized (pauseLock) {
+	    if (executionState != RUNNING)
+		return;
+	    pauseStart = System.currentTimeMillis();
+	    executionState = PAUSED;
+	}
+	fireEvent(SolverListener::onPause);
+    }
+
+    /**
+     * Resumes the solver after {@link #pause()}.
+     * 
+     * @see Solver#resume()
+     */
+    @Override
+    public final void resume() {
+	synchronized (pauseLock) {
+	    if (executionState != PAUSED)
+		return;
+	    pausedDuration += System.currentTimeMillis() - pauseStart;
+	    executionState = RUNNING;
+	    pauseLock.notifyAll();
+	}
+	fireEvent(SolverListener::onResume);
+    }
+
+    /**
+     * Blocks the calling thread while the solver is paused. Returns immediately if
+     * the solver is not paused or when {@link #cancel()} is called.
+     * 
+     * @return false if the solver should stop (see {@link #isCancelRequested()}),
+     *         otherwise true.
+     */
+    protected final boolean awaitResume() {
+	if (executionState == PAUSED) {
+	    synchronized (pauseLock) {
+		while (executionState == PAUSED && !cancelRequested) {
+		    try {
+			pauseLock.wait();
+		    } catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			break;
+		    }
+		}
+	    }
+	}
+	return !cancelRequested;
+    }
+
+    /**
+     * Returns the time the solver was paused since it was started, including the
+     * current pause. Solvers subtract it from their duration.
+     * 
+     * @return the paused time in milliseconds.
+     */
+    protected final long getPausedDuration() {
+	synchronized (pauseLock) {
+	    if (executionState == PAUSED)
+		return pausedDuration + System.currentTimeMillis() - pauseStart;
+	    return pausedDuration;
+	}
+    }
+
+    private void setExecutionState(ExecutionState executionState) {
+	synchronized (pauseLock) {
+	    // the solver can finish or be canceled while it is paused
+	    if (this.executionState == PAUSED && executionState != PAUSED)
+		pausedDuration += System.currentTimeMillis() - pauseStart;
+	    this.executionState = executionState;
+	}
+    }
 
-	executionState = FINISHED;
+    /**
+     * Returns whether {@link #cancel()} was called since the solver was started.
+     * 
+     * @return true if the solver should stop, otherwise false.
+     */
+    protected final boolean isCancelRequested() {
+	return cancelRequested;
+    }
+
+    /**
+     * Adds a listener that receives the events of the solver on its own thread.
+     * The thread is started when needed and terminates when the listener is idle
+     * for a while.
+     * 
+     * @param listener the listener. Must not be {@code null}.
+     * 
+     * @see SolverListener
+     */
+    public final void addListener(SolverListener listener) {
+	addListener(listener, null);
+    }
+
+    /**
+     * Adds a listener that receives the events of the solver on the given
+     * executor, e.g. {@code EventQueue::invokeLater} for Swing. The executor
+     * should run the tasks one after another in the order they were submitted,
+     * otherwise the events might arrive out of order.
+     * 
+     * @param listener the listener. Must not be {@code null}.
+     * @param executor the executor that delivers the events, {@code null} for a
+     *                 thread of the listener.
+     * 
+     * @see SolverListener
+     */
+    public final void addListener(SolverListener listener, Executor executor) {
+	if (listener == null)
+	    throw new IllegalArgumentException("could not add listener: listener must not be null");
+	listeners.add(new ListenerRegistration(listener, executor));
+    }
+
+    /**
+     * Removes a listener. Events that were already passed to its executor are
+     * still delivered.
+     * 
+     * @param listener the listener.
+     */
+    public final void removeListener(SolverListener listener) {
+	listeners.removeIf(registration -> registration.listener == listener);
+    }
+
+    /**
+     * Notifies the listeners that a constellation was solved. Solvers that split
+     * the board into constellations call this whenever one of them is solved. Only
+     * listeners that override {@link SolverListener#onConstellationSolved} receive
+     * the event, so calling it without such listeners costs next to nothing.
+     * 
+     * @param constellation the solved constellation.
+     * @param solutions     the number of solutions of the constellation.
+     */
+    protected final void fireConstellationSolved(Object constellation, long solutions) {
+	for (var registration : listeners)
+	    if (registration.constellationEvents)
+		registration.deliver(listener -> listener.onConstellationSolved(constellation, solutions));
+    }
+
+    private void fireEvent(Consumer<SolverListener> event) {
+	for (var registration : listeners)
+	    registration.deliver(event);
+    }
+
+    private void publishProgress(ProgressSnapshot snapshot) {
+	progressCallback.deliverProgress(snapshot);
+	for (var registration : listeners)
+	    registration.deliverProgress(snapshot);
+    }
+
+    /**
+     * Starts the solver like {@link #start()}, but in a new virtual thread, and
+     * returns immediately.
+     * 
+     * @return a future that completes with the result when the solver has
+     *         finished, or exceptionally when it was canceled.
+     * 
+     * @see #startAsync(Executor)
+     */
+    public final CompletableFuture<SolveResult> startAsync() {
+	return startAsync(runnable -> Thread.ofVirtual().name("solver").start(runnable));
+    }
+
+    /**
+     * Starts the solver like {@link #start()}, but on the given executor, and
+     * returns immediately.
+     * 
+     * @param executor the executor that runs {@link #start()}.
+     * @return a future that completes with the result when the solver has
+     *         finished, or exceptionally when it was canceled by an exception or
+     *         by {@link #cancel()}. Canceling the future cancels the solver.
+     */
+    public final CompletableFuture<SolveResult> startAsync(Executor executor) {
+	var future = CompletableFuture.supplyAsync(() -> {
+	    start();
+	    if (executionState == CANCELED)
+		throw new CancellationException("solver was canceled");
+	    return new SolveResult(n, getSolutions(), getDuration());
+	}, executor);
+	// the future itself can not stop the thread that runs start()
+	future.whenComplete((result, e) -> {
+	    if (future.isCancelled())
+		cancel();
+	});
+	return future;
+    }
+
+    /**
+     * Returns a publisher of the progress updates of the solver. Each subscriber
+     * receives the updates on a thread of its own, as many as it requested. Updates
+     * that arrive while the subscriber has no outstanding requests are not
+     * buffered, the subscriber receives the latest one when it requests the next
+     * update. The subscription completes when the solver has finished (after the
+     * last update) and fails when the solver was canceled. Subscribers that
+     * subscribe after that are completed or failed right away.
+     * 
+     * @return the publisher of progress updates.
+     * 
+     * @see #setUpdateInterval(int)
+     */
+    public final Flow.Publisher<ProgressSnapshot> progressPublisher() {
+	// created here instead of in the field initializer, which would pass on the
+	// solver before it is constructed
+	// the publisher has no state of its own, so creating two of them does no harm
+	var progressPublisher = this.progressPublisher;
+	if (progressPublisher == null)
+	    this.progressPublisher = progressPublisher = new ProgressPublisher(this);
+	return progressPublisher;
     }
 
     private void preconditions() {
@@ -128,7 +436,8 @@ public abstract class AbstractSolver implements Solver {
     /**
      * Sets the callback that is executed when an Exception was thrown during
      * {@link Solver#solve()}, meaning that the {@link Solver} did not finish
-     * successfully.
+     * successfully. If the solver was stopped by {@link #cancel()}, the exception
+     * is a {@link CancellationException}.
      * 
      * @param cb the runnable to be executed. Must not be {@code null}.
      * 
@@ -160,7 +469,8 @@ public abstract class AbstractSolver implements Solver {
     /**
      * Sets the callback that is executed on progress updates of the
      * {@link Solver#solve()}. The callback is executed only during the solving
-     * process.
+     * process, on a thread of its own. If it is still busy when the next update
+     * arrives, the updates in between are skipped and it receives the latest one.
      * 
      * @param onUpdate the consumer to be executed. Must not be {@code null}.
      * 
@@ -199,6 +509,60 @@ public abstract class AbstractSolver implements Solver {
 	return updateInterval;
     }
 
+    // a listener with its executor and its pending progress update
+    private static class ListenerRegistration {
+
+	private final SolverListener listener;
+	private final Executor executor;
+	private final boolean constellationEvents;
+	// the latest progress update that was not delivered yet
+	private final AtomicReference<ProgressSnapshot> pendingProgress = new AtomicReference<ProgressSnapshot>();
+
+	ListenerRegistration(SolverListener listener, Executor executor) {
+	    this.listener = listener;
+	    this.executor = executor != null ? executor : newListenerExecutor();
+	    constellationEvents = overridesOnConstellationSolved(listener);
+	}
+
+	void deliver(Consumer<SolverListener> event) {
+	    executor.execute(() -> event.accept(listener));
+	}
+
+	// only the first update after a delivery schedules a task, the task delivers
+	// whatever update is the latest when it runs
+	void deliverProgress(ProgressSnapshot snapshot) {
+	    if (pendingProgress.getAndSet(snapshot) == null)
+		executor.execute(() -> listener.onProgressUpdate(pendingProgress.getAndSet(null)));
+	}
+
+	// waits until the events that were passed to the executor so far are delivered
+	void awaitDelivery() {
+	    CompletableFuture.runAsync(() -> {
+	    }, executor).join();
+	}
+
+	// a single daemon thread that terminates when idle
+	private static ExecutorService newListenerExecutor() {
+	    var executor = new ThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+		    runnable -> {
+			var thread = new Thread(runnable, "solver-listener");
+			thread.setDaemon(true);
+			return thread;
+		    });
+	    executor.allowCoreThreadTimeOut(true);
+	    return executor;
+	}
+
+	private static boolean overridesOnConstellationSolved(SolverListener listener) {
+	    try {
+		return listener.getClass().getMethod("onConstellationSolved", Object.class, long.class)
+			.getDeclaringClass() != SolverListener.class;
+	    } catch (NoSuchMethodException e) {
+		return false;
+	    }
+	}
+    }
+
     /**
      * Defines the interface of a consumer callback to be executed on progress
      * updates of the {@link Solver}.
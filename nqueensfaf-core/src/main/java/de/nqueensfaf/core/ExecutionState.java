@@ -28,6 +28,12 @@ public enum ExecutionState {
      */
     RUNNING,
 
+    /**
+     * The {@link Solver} was paused while executing the solving algorithm and waits
+     * to be resumed. Optional.
+     */
+    PAUSED,
+
     /**
      * The solving algorithm has finished, but there are still tasks left to be
      * teared down (for example terminating threads). Optional.
@@ -72,8 +78,8 @@ public enum ExecutionState {
      * Checks if this execution state represents the state of a running (busy) solver.
      * Applies to any {@link Solver} instance that was started, but did not finish yet.
      * 
-     * @return true if this execution state is {@link #STARTING}, {@link #RUNNING} or 
-     * {@link #TERMINATING}, otherwise false.
+     * @return true if this execution state is {@link #STARTING}, {@link #RUNNING},
+     * {@link #PAUSED} or {@link #TERMINATING}, otherwise false.
      */
     public boolean isBusy() {
 	return isAfter(READY) && isBefore(FINISHED);
@@ -0,0 +1,124 @@
+package de.nqueensfaf.core;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+// publishes the progress updates of a solver to Flow subscribers
+// each subscription is a listener of the solver, so the updates arrive coalesced
+// on its own thread, and only the latest update is kept until the subscriber
+// requests it, so a slow subscriber never makes the updates pile up
+// the subscription completes when the solver finishes and fails when it is
+// canceled, or right away if that already happened
+class ProgressPublisher implements Flow.Publisher<ProgressSnapshot> {
+
+    private final AbstractSolver solver;
+
+    ProgressPublisher(AbstractSolver solver) {
+	this.solver = solver;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super ProgressSnapshot> subscriber) {
+	if (subscriber == null)
+	    throw new NullPointerException("could not subscribe: subscriber must not be null");
+	var subscription = new ProgressSubscription(subscriber);
+	subscriber.onSubscribe(subscription);
+	solver.addListener(subscription);
+	// the solver does not notify listeners about what happened before they were
+	// added
+	// a subscription that is notified twice ignores the second notification
+	var executionState = solver.getExecutionState();
+	if (executionState == ExecutionState.TERMINATING || executionState == ExecutionState.FINISHED)
+	    subscription.onFinish();
+	else if (executionState == ExecutionState.CANCELED)
+	    subscription.onCancel(new CancellationException("solver was canceled"));
+    }
+
+    private class ProgressSubscription implements Flow.Subscription, SolverListener {
+
+	private final Flow.Subscriber<? super ProgressSnapshot> subscriber;
+	private final AtomicLong demand = new AtomicLong(0);
+	// the latest update that was not delivered yet
+	private final AtomicReference<ProgressSnapshot> latest = new AtomicReference<ProgressSnapshot>();
+	// the exception that canceled the solver or, when finished, the completion
+	// marker
+	private final AtomicReference<Throwable> terminal = new AtomicReference<Throwable>();
+	private final AtomicInteger drains = new AtomicInteger(0); // serializes the signals
+	private volatile boolean canceled;
+
+	ProgressSubscription(Flow.Subscriber<? super ProgressSnapshot> subscriber) {
+	    this.subscriber = subscriber;
+	}
+
+	@Override
+	public void request(long n) {
+	    if (n <= 0) {
+		terminal.compareAndSet(null,
+			new IllegalArgumentException("invalid value for requested updates: not a number >0"));
+		latest.set(null);
+	    } else
+		demand.getAndAccumulate(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+	    drain();
+	}
+
+	@Override
+	public void cancel() {
+	    canceled = true;
+	    solver.removeListener(this);
+	}
+
+	@Override
+	public void onProgressUpdate(ProgressSnapshot snapshot) {
+	    latest.set(snapshot);
+	    drain();
+	}
+
+	@Override
+	public void onFinish() {
+	    terminal.compareAndSet(null, COMPLETED);
+	    drain();
+	}
+
+	@Override
+	public void onCancel(Exception e) {
+	    terminal.compareAndSet(null, e);
+	    latest.set(null);
+	    drain();
+	}
+
+	// delivers the latest update if the subscriber requested one and then the
+	// completion or error, only one thread at a time
+	private void drain() {
+	    if (drains.getAndIncrement() != 0)
+		return;
+	    do {
+		if (canceled)
+		    return;
+		if (demand.get() > 0) {
+		    var snapshot = latest.getAndSet(null);
+		    if (snapshot != null) {
+			demand.decrementAndGet();
+			subscriber.onNext(snapshot);
+		    }
+		}
+		var terminal = this.terminal.get();
+		if (terminal != null && latest.get() == null) {
+		    cancel();
+		    if (terminal == COMPLETED)
+			subscriber.onComplete();
+		    else
+			subscriber.onError(terminal);
+		    return;
+		}
+	    } while (drains.decrementAndGet() != 0);
+	}
+    }
+
+    // marks the completion in ProgressSubscription.terminal
+    private static final Throwable COMPLETED = new Throwable("completed", null, false, false) {
+	private static final long serialVersionUID = 1L;
+    };
+}
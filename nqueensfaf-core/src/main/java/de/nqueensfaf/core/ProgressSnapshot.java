@@ -0,0 +1,41 @@
+package de.nqueensfaf.core;
+
+/**
+ * The progress of a {@link Solver} at one moment. Unlike separate calls of
+ * {@link Solver#getProgress()}, {@link Solver#getSolutions()} and
+ * {@link Solver#getDuration()}, the values of a snapshot belong together, e.g.
+ * the solution count is exactly the sum of the solved constellations.
+ *
+ * @param progress             the progress between 0 and 1.
+ * @param solutions            the number of solutions found so far.
+ * @param duration             the duration of the solving process so far in
+ *                             milliseconds.
+ * @param solvedConstellations the number of solved constellations, 0 if the
+ *                             solver does not split the board into
+ *                             constellations.
+ * @param totalConstellations  the number of constellations of the board, 0 if
+ *                             the solver does not split the board into
+ *                             constellations.
+ *
+ * @see Solver#getProgressSnapshot()
+ */
+public record ProgressSnapshot(float progress, long solutions, long duration, long solvedConstellations,
+	long totalConstellations) {
+
+    /**
+     * Creates a snapshot of a solver that splits the board into constellations,
+     * the progress is the share of solved constellations.
+     *
+     * @param solutions            the number of solutions found so far.
+     * @param duration             the duration of the solving process so far in
+     *                             milliseconds.
+     * @param solvedConstellations the number of solved constellations.
+     * @param totalConstellations  the number of constellations of the board.
+     * @return the snapshot.
+     */
+    public static ProgressSnapshot ofConstellations(long solutions, long duration, long solvedConstellations,
+	    long totalConstellations) {
+	float progress = totalConstellations == 0 ? 0 : (float) ((double) solvedConstellations / totalConstellations);
+	return new ProgressSnapshot(progress, solutions, duration, solvedConstellations, totalConstellations);
+    }
+}
@@ -0,0 +1,13 @@
+package de.nqueensfaf.core;
+
+/**
+ * The result of a finished {@link Solver}.
+ *
+ * @param n         the board size.
+ * @param solutions the number of solutions.
+ * @param duration  the duration of the solving process in milliseconds.
+ *
+ * @see AbstractSolver#startAsync()
+ */
+public record SolveResult(int n, long solutions, long duration) {
+}
@@ -81,6 +81,61 @@ public interface Solver {
 	return getExecutionState() == ExecutionState.FINISHED ? 1f : 0f;
     }
 
+    /**
+     * Returns the (current) progress, solution count and duration of the solver as
+     * one consistent snapshot, see {@link ProgressSnapshot}.
+     * <p>
+     * The default implementation combines {@link #getProgress()},
+     * {@link #getSolutions()} and {@link #getDuration()}, which are read one after
+     * another. Solvers that update these values from multiple threads should
+     * override it.
+     * 
+     * @return the (current) progress snapshot.
+     * 
+     * @see #solve()
+     */
+    default ProgressSnapshot getProgressSnapshot() {
+	return new ProgressSnapshot(getProgress(), getSolutions(), getDuration(), 0, 0);
+    }
+
+    /**
+     * Requests the solver to stop as soon as possible. Has no effect if the solver
+     * is not running.
+     * <p>
+     * The solver stops all of its threads within a bounded time, i.e. without
+     * finishing the whole board, and {@link #getExecutionState()} returns
+     * {@link ExecutionState#CANCELED} afterwards. Solvers that support saving their
+     * progress keep the work that was done so far, so that the next call of
+     * {@link #solve()} or {@link #save(String)} continues where it stopped.
+     * 
+     * @see ExecutionState#CANCELED
+     */
+    default void cancel() {
+	throw new UnsupportedOperationException("Not implemented");
+    }
+
+    /**
+     * Pauses the solver. Its threads finish the work they are doing and then wait
+     * until {@link #resume()} is called, and {@link #getExecutionState()} returns
+     * {@link ExecutionState#PAUSED} in the meantime. The paused time does not count
+     * into {@link #getDuration()}. Has no effect if the solver is not running.
+     * 
+     * @see #resume()
+     */
+    default void pause() {
+	throw new UnsupportedOperationException("Not implemented");
+    }
+
+    /**
+     * Resumes the solver after {@link #pause()}. Has no effect if the solver is not
+     * paused.
+     * 
+     * @see #pause()
+     */
+    default void resume() {
+	throw new UnsupportedOperationException("Not implemented");
+    }
+
     /**
      * Returns the current execution state of the solver.
      * 
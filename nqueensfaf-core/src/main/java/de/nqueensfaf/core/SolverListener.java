@@ -0,0 +1,75 @@
+package de.nqueensfaf.core;
+
+/**
+ * Receives the events of an {@link AbstractSolver}. All methods have empty
+ * default implementations, so a listener only overrides the events it is
+ * interested in.
+ * <p>
+ * The events are delivered asynchronously by the executor of the listener (see
+ * {@link AbstractSolver#addListener(SolverListener, java.util.concurrent.Executor)}),
+ * so a slow listener neither blocks the solver nor the other listeners. Progress
+ * updates that arrive while the listener is still busy are coalesced: only the
+ * latest one is delivered.
+ *
+ * @see AbstractSolver#addListener(SolverListener)
+ */
+public interface SolverListener {
+
+    /**
+     * Called when the solver has started.
+     */
+    default void onStart() {
+    }
+
+    /**
+     * Called on progress updates, in the interval of
+     * {@link AbstractSolver#getUpdateInterval()}, and once more when the solver
+     * has finished.
+     *
+     * @param snapshot the progress of the solver.
+     */
+    default void onProgressUpdate(ProgressSnapshot snapshot) {
+    }
+
+    /**
+     * Called whenever the solver has solved a constellation. These events are not
+     * coalesced, so a listener that overrides this method receives one call per
+     * constellation.
+     *
+     * @param constellation the solved constellation (e.g. a
+     *                      {@code de.nqueensfaf.impl.Constellation}), must not be
+     *                      modified.
+     * @param solutions     the number of solutions of the constellation.
+     */
+    default void onConstellationSolved(Object constellation, long solutions) {
+    }
+
+    /**
+     * Called when the solver was paused by {@link AbstractSolver#pause()}.
+     */
+    default void onPause() {
+    }
+
+    /**
+     * Called when the solver was resumed by {@link AbstractSolver#resume()}.
+     */
+    default void onResume() {
+    }
+
+    /**
+     * Called when the solver has finished successfully.
+     */
+    default void onFinish() {
+    }
+
+    /**
+     * Called when the solver was canceled by an exception or by
+     * {@link AbstractSolver#cancel()}.
+     *
+     * @param e the exception that canceled the solver, a
+     *          {@link java.util.concurrent.CancellationException} if it was
+     *          canceled by {@link AbstractSolver#cancel()}.
+     */
+    default void onCancel(Exception e) {
+    }
+}
@@ -8,6 +8,8 @@ import java.util.concurrent.TimeUnit;
 
 import de.nqueensfaf.core.AbstractSolver;
 import de.nqueensfaf.core.AbstractSolver.OnProgressUpdateConsumer;
+import de.nqueensfaf.impl.CpuSolver;
+import de.nqueensfaf.impl.GpuSolver;
 import de.nqueensfaf.impl.SymSolver;
 import picocli.CommandLine.ArgGroup;
 import picocli.CommandLine.Command;
@@ -137,8 +139,14 @@ public class BaseCommand {
     }
 
     long getUniqueSolutions(AbstractSolver solver) {
+	// the cpu and gpu solver count the unique solutions during the run
+	if (solver instanceof CpuSolver cpuSolver)
+	    return cpuSolver.getUniqueSolutions();
+	if (solver instanceof GpuSolver gpuSolver)
+	    return gpuSolver.getUniqueSolutions();
 	SymSolver symSolver = new SymSolver();
 	symSolver.setN(solver.getN());
+	symSolver.setThreadCount(Runtime.getRuntime().availableProcessors());
 	symSolver.start();
 	return symSolver.getUniqueSolutionsTotal(solver.getSolutions());
     }
@@ -153,7 +161,7 @@ public class BaseCommand {
 	return sb.toString();
     }
 
-    private static String getDurationPrettyString(long time) {
+    static String getDurationPrettyString(long time) {
 	long h = time / 1000 / 60 / 60;
 	long m = time / 1000 / 60 % 60;
 	long s = time / 1000 % 60;
@@ -20,6 +20,18 @@ public class CpuCommand implements Runnable {
     @Option(names = { "-t", "--threads" }, required = false, description = "How many CPU threads should be used")
     int threads;
 
+    @Option(names = { "-e",
+	    "--engine" }, required = false, description = "Which algorithm should be used for solving the constellations: ${COMPLETION-CANDIDATES}")
+    CpuSolver.Engine engine;
+
+    @Option(names = { "-a",
+	    "--auto-preset-queens" }, required = false, description = "Choose the number of preset queens depending on N, the threads and the available memory")
+    boolean autoPresetQueens;
+
+    @Option(names = {
+	    "--estimate" }, required = false, description = "Do not solve, but estimate the solutions and the duration from the given number of random constellations")
+    int estimateSamples;
+
     private CpuSolver solver;
 
     public CpuCommand() {
@@ -39,7 +51,32 @@ public class CpuCommand implements Runnable {
 	    solver.setPresetQueens(presetQueens);
 	if (threads != 0)
 	    solver.setThreadCount(threads);
+	if (engine != null)
+	    solver.setEngine(engine);
+	if (engine == CpuSolver.Engine.VECTOR && !CpuSolver.isVectorEngineAvailable())
+	    System.out.println(
+		    "vector engine not available (JVM option --add-modules jdk.incubator.vector), using JKL_MASKS instead");
+	if (engine == CpuSolver.Engine.GENERATED && !CpuSolver.isGeneratedEngineAvailable())
+	    System.out.println("generated engine not available (no java compiler found), using RECURSIVE instead");
+	if (autoPresetQueens && base.NOrFile.path == null) {
+	    var choice = solver.choosePresetQueens();
+	    System.out.printf("preset queens: %d (%d constellations)%n", choice.presetQueens(), choice.constellations());
+	}
+
+	if (estimateSamples != 0) {
+	    var estimate = solver.estimate(estimateSamples);
+	    System.out.printf("estimated solutions: %.4g (95%% confidence interval: %.4g - %.4g)%n",
+		    estimate.solutions(), estimate.solutionsLow(), estimate.solutionsHigh());
+	    System.out.printf("estimated duration with %d threads: %s (95%% confidence interval: %s - %s)%n",
+		    solver.getThreadCount(), BaseCommand.getDurationPrettyString(estimate.duration()),
+		    BaseCommand.getDurationPrettyString(estimate.durationLow()),
+		    BaseCommand.getDurationPrettyString(estimate.durationHigh()));
+	    return;
+	}
 
 	solver.start();
+
+	if (solver.getLaneUtilization() > 0)
+	    System.out.printf("vector lane utilization: %.1f%%%n", solver.getLaneUtilization() * 100);
     }
 }
\ No newline at end of file
@@ -28,6 +28,10 @@ public class GpuCommand implements Runnable {
     @Option(names = { "-0", "--use-default-gpu" }, description = "Use the default GPU", defaultValue = "false")
     boolean useDefaultGpu;
 
+    @Option(names = { "-a",
+	    "--auto-preset-queens" }, required = false, description = "Choose the number of preset queens depending on N, the GPUs and the available memory")
+    boolean autoPresetQueens;
+
     private GpuSolver solver;
 
     public GpuCommand() {
@@ -96,6 +100,11 @@ public class GpuCommand implements Runnable {
 	    }
 	}
 
+	if (autoPresetQueens && base.NOrFile.path == null) {
+	    var choice = solver.choosePresetQueens();
+	    System.out.printf("preset queens: %d (%d constellations)%n", choice.presetQueens(), choice.constellations());
+	}
+
 	solver.start();
     }
 
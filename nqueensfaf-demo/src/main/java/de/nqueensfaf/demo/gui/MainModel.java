@@ -13,7 +13,10 @@ import javax.swing.event.EventListenerList;
 import javax.swing.event.SwingPropertyChangeSupport;
 
 import de.nqueensfaf.core.AbstractSolver.OnProgressUpdateConsumer;
+import de.nqueensfaf.core.AbstractSolver;
 import de.nqueensfaf.core.ExecutionState;
+import de.nqueensfaf.impl.CpuSolver;
+import de.nqueensfaf.impl.GpuSolver;
 import de.nqueensfaf.impl.SymSolver;
 
 class MainModel {
@@ -102,8 +105,8 @@ class MainModel {
     }
     
     private void update() {
-	var solver = selectedSolverImplWithConfig.getSolver();
-	update(solver.getProgress(), solver.getSolutions(), solver.getDuration());
+	var snapshot = selectedSolverImplWithConfig.getSolver().getProgressSnapshot();
+	update(snapshot.progress(), snapshot.solutions(), snapshot.duration());
     }
 
     // ------------ getters and setters -------------
@@ -112,6 +115,7 @@ class MainModel {
 	
 	if(symSolvers.get(solverImplWithConfig) == null) {
 	    var symSolver = new SymSolver();
+	    symSolver.setThreadCount(Runtime.getRuntime().availableProcessors());
 	    symSolver.onProgressUpdate((progress, solutions, duration) -> {
 		// continue unique solutions updates if solver is finished but SymSolver still running
 		var runningSolverImpl = selectedSolverImplWithConfig.getSolver();
@@ -172,6 +176,11 @@ class MainModel {
     }
     
     long getUniqueSolutions(long solutions) {
+	var solver = selectedSolverImplWithConfig.getSolver();
+	if (solver instanceof CpuSolver cpuSolver)
+	    return cpuSolver.getUniqueSolutions();
+	if (solver instanceof GpuSolver gpuSolver)
+	    return gpuSolver.getUniqueSolutions();
 	return symSolvers.get(selectedSolverImplWithConfig).getUniqueSolutionsTotal(solutions);
     }
 
@@ -187,7 +196,9 @@ class MainModel {
 	if(errorMessage.length() > 0)
 	    throw new Exception(errorMessage);
 	
-	Thread.ofVirtual().start(() -> symSolvers.get(selectedSolverImplWithConfig).start());
+	// the cpu and gpu solver count the unique solutions themselves
+	if (!countsUniqueSolutions(selectedSolverImplWithConfig.getSolver()))
+	    symSolvers.get(selectedSolverImplWithConfig).startAsync();
 	try {
 	    selectedSolverImplWithConfig.getSolver().start();
 	} catch(Exception e) {
@@ -196,6 +207,10 @@ class MainModel {
 	}
     }
     
+    private static boolean countsUniqueSolutions(AbstractSolver solver) {
+	return solver instanceof CpuSolver || solver instanceof GpuSolver;
+    }
+    
     private void applyConfigs() {
 	var solver = selectedSolverImplWithConfig.getSolver();
 	solver.onProgressUpdate(onProgressUpdate);
@@ -0,0 +1,51 @@
+package de.nqueensfaf.impl;
+
+/**
+ * Chooses the number of preset queens of a solver. Too few preset queens result
+ * in too few constellations to keep all threads or devices busy until the end,
+ * too many result in so many constellations that they do not fit into the
+ * memory. The number of constellations of each candidate is counted with
+ * {@link ConstellationsGenerator#count(int)}, which is fast compared to the
+ * generation of the constellations.
+ */
+public final class AutoPresetQueens {
+
+    private AutoPresetQueens() {
+    }
+
+    /**
+     * Chooses the smallest number of preset queens that results in at least
+     * {@code minConstellations} constellations. If this would result in more than
+     * {@code maxConstellations} constellations, the biggest number of preset queens
+     * below is chosen (at least 4).
+     *
+     * @param n                 the board size.
+     * @param minConstellations the number of constellations that is needed to keep
+     *                          all workers busy.
+     * @param maxConstellations the number of constellations that fit into the
+     *                          memory.
+     * @return the chosen number of preset queens and the number of constellations
+     *         that will be generated.
+     */
+    public static Choice choose(int n, long minConstellations, long maxConstellations) {
+	var generator = new ConstellationsGenerator(n);
+	Choice choice = new Choice(4, generator.count(4));
+	for (int presetQueens = 5; presetQueens < n - 1 && choice.constellations() < minConstellations; presetQueens++) {
+	    long constellations = generator.count(presetQueens);
+	    // for small boards, more preset queens can result in fewer constellations
+	    if (constellations > maxConstellations || constellations <= choice.constellations())
+		break;
+	    choice = new Choice(presetQueens, constellations);
+	}
+	return choice;
+    }
+
+    /**
+     * The result of {@link AutoPresetQueens#choose(int, long, long)}.
+     *
+     * @param presetQueens   the chosen number of preset queens.
+     * @param constellations the number of constellations that will be generated.
+     */
+    public record Choice(int presetQueens, long constellations) {
+    }
+}
@@ -0,0 +1,120 @@
+package de.nqueensfaf.impl;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// precomputed number of ways to fill the last [depth] rows of a board, used instead
+// of the last levels of the recursion of the CpuSolverThread
+// in the last [depth] rows exactly [depth] columns are free, so the state can be
+// reduced to these columns (independent of N):
+// - for each of the rows, which of the free columns are not attacked by the
+// diagonals of the queens that are already placed (depth * depth bits)
+// - for each distance d < depth, which free columns have another free column d
+// columns to their left ((depth - 1) * (depth - 1) bits), which is all that matters
+// for the diagonals between the queens that are placed in these rows
+// the free columns are extracted with Integer.compress
+class CompletionTable {
+
+    static final int MAX_DEPTH = 4;
+
+    private static final Map<Integer, byte[]> tables = new ConcurrentHashMap<Integer, byte[]>();
+
+    private CompletionTable() {
+    }
+
+    // memory of the table for the given depth in bytes
+    static long size(int depth) {
+	return 1L << (depth * depth + (depth - 1) * (depth - 1));
+    }
+
+    // the biggest depth of which the table fits into the given memory, 0 if none
+    static int depth(long memory) {
+	for (int depth = MAX_DEPTH; depth >= 2; depth--)
+	    if (size(depth) <= memory)
+		return depth;
+	return 0;
+    }
+
+    // the table for the given depth, built on the first call
+    static byte[] get(int depth) {
+	if (depth < 2 || depth > MAX_DEPTH)
+	    throw new IllegalArgumentException("invalid value for completion table depth: not a number >=2 and <="
+		    + MAX_DEPTH);
+	return tables.computeIfAbsent(depth, CompletionTable::build);
+    }
+
+    // number of ways to place a queen in each of the last [depth] rows, starting in
+    // the row of ld, rd and col with the free fields free
+    // lastRowMask is applied to the free fields of the last row
+    static int count(byte[] table, int depth, int ld, int rd, int col, int free, int lastRowMask) {
+	final int columns = ~col;
+	int key = Integer.compress(free, columns);
+	for (int s = 1; s < depth; s++) {
+	    int rowFree = ~((ld << s) | (rd >> s));
+	    if (s == depth - 1)
+		rowFree &= lastRowMask;
+	    key |= Integer.compress(rowFree, columns) << (s * depth);
+	}
+	final int gapMask = (1 << (depth - 1)) - 1;
+	for (int d = 1; d < depth; d++)
+	    key |= (Integer.compress(columns & (columns >>> d), columns) & gapMask) << (depth * depth
+		    + (d - 1) * (depth - 1));
+	return table[key];
+    }
+
+    private static byte[] build(int depth) {
+	final int freeBits = depth * depth;
+	final byte[] table = new byte[(int) size(depth)];
+	final int[] columns = new int[depth];
+
+	for (int gaps = 0; gaps < 1 << ((depth - 1) * (depth - 1)); gaps++) {
+	    // positions of the free columns, the gap to the next column is the smallest
+	    // distance d for which its bit is set, or at least depth
+	    for (int i = 0; i < depth - 1; i++) {
+		int gap = depth;
+		for (int d = depth - 1; d >= 1; d--)
+		    if ((gaps & (1 << ((d - 1) * (depth - 1) + i))) != 0)
+			gap = d;
+		columns[i + 1] = columns[i] + gap;
+	    }
+	    // all arrangements of the queens without diagonal conflicts, as sets of fields
+	    // (bit row * depth + column index)
+	    final int[] placements = placements(columns, depth);
+	    for (int free = 0; free < 1 << freeBits; free++) {
+		int count = 0;
+		for (int placement : placements)
+		    if ((placement & ~free) == 0)
+			count++;
+		table[(gaps << freeBits) | free] = (byte) count;
+	    }
+	}
+	return table;
+    }
+
+    private static int[] placements(int[] columns, int depth) {
+	int[] result = new int[24];
+	int[] queens = new int[depth];
+	int count = placements(columns, depth, queens, 0, 0, 0, result, 0);
+	return Arrays.copyOf(result, count);
+    }
+
+    private static int placements(int[] columns, int depth, int[] queens, int row, int used, int fields,
+	    int[] result, int count) {
+	if (row == depth) {
+	    result[count] = fields;
+	    return count + 1;
+	}
+	next: for (int i = 0; i < depth; i++) {
+	    if ((used & (1 << i)) != 0)
+		continue;
+	    for (int r = 0; r < row; r++)
+		if (Math.abs(columns[queens[r]] - columns[i]) == row - r)
+		    continue next;
+	    queens[row] = i;
+	    count = placements(columns, depth, queens, row + 1, used | (1 << i), fields | (1 << (row * depth + i)),
+		    result, count);
+	}
+	return count;
+    }
+}
@@ -1,9 +1,24 @@
 package de.nqueensfaf.impl;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.random.RandomGenerator;
 
 public class ConstellationUtils {
 
+    // the constellations need a board of at least 5x5, smaller boards are solved by
+    // smallBoardSolutions()
+    static final int MIN_CONSTELLATIONS_N = 5;
+    // random paths per constellation in estimateCost()
+    private static final int COST_PROBES = 16;
+
     // functions for ijkl manipulation
     static int toIjkl(int i, int j, int k, int l) {
 	return (i << 15) + (j << 10) + (k << 5) + l;
@@ -37,6 +52,185 @@ public class ConstellationUtils {
 	return (L >>> getj(ijkl)) | (1 << getk(ijkl));
     }
 
+    // occupancy of each row of the board by the queens j, k and l and by the border
+    // columns, which are only free in the rows k and l (here the queens k and l are
+    // placed)
+    static int[] jklQueens(int n, int ijkl) {
+	final int L = 1 << (n - 1);
+	int j = getj(ijkl);
+	int k = getk(ijkl);
+	int l = getl(ijkl);
+	var jklQueens = new int[n];
+	// the rd from queen j and k with respect to the last row
+	int rdiag = (L >> j) | (L >> (n - 1 - k));
+	// the ld from queen j and l with respect to the last row
+	int ldiag = (L >> j) | (L >> l);
+	for (int row = 0; row < n; row++) {
+	    jklQueens[n - 1 - row] = (ldiag >> row) | (rdiag << row) | L | 1;
+	}
+	ldiag = L >> k;
+	rdiag = 1 << l;
+	for (int row = 0; row < n; row++) {
+	    jklQueens[row] |= (ldiag << row) | (rdiag >> row);
+	}
+	jklQueens[k] = ~L;
+	jklQueens[l] = ~1;
+	return jklQueens;
+    }
+
+    // the start state of a constellation for the engines that use jklQueens(): the
+    // diagonals of the queens k and l are removed from ld and rd and the border
+    // columns from col, because jklQueens contains all of them
+    static int startLd(int n, Constellation constellation) {
+	return constellation.getLd()
+		& ~(((1 << (n - 1)) >>> getk(constellation.getIjkl())) << constellation.getStart());
+    }
+
+    static int startRd(int n, Constellation constellation) {
+	final int l = getl(constellation.getIjkl());
+	if (l == n - 1)
+	    return constellation.getRd();
+	return constellation.getRd() & ~((1 << l) >>> constellation.getStart());
+    }
+
+    static int startCol(int n, Constellation constellation) {
+	return ~((1 << (n - 1)) - 2) ^ constellation.getCol();
+    }
+
+    /**
+     * Estimates how expensive it is to solve the given constellation, i.e. the
+     * number of nodes of its search tree. The estimate is obtained by Knuth's
+     * method: a few random paths are taken from the start row of the
+     * constellation down to the last free row and the products of the numbers of
+     * free squares along each path are averaged. Because the paths walk over the
+     * actual board, including the rows and diagonals of the queens i, j, k and l,
+     * the number of remaining rows as well as the position of the queen j relative
+     * to the corner are taken into account. The paths are seeded by the
+     * constellation itself, so the estimate is deterministic.
+     * 
+     * @param n             the board size.
+     * @param constellation the constellation.
+     * @return the estimated cost of the constellation (at least 1).
+     */
+    public static long estimateCost(int n, Constellation constellation) {
+	final double[] estimate = new double[2];
+	probe(n, constellation, jklQueens(n, constellation.getIjkl()), COST_PROBES,
+		new SplittableRandom(constellation.getStartIjkl() * 0x9E3779B97F4A7C15L ^ constellation.getLd()),
+		estimate);
+	return Math.max(1, Math.round(estimate[1]));
+    }
+
+    // Knuth's method: takes probes random paths from the start row of the
+    // constellation down to the last free row, the products of the numbers of free
+    // fields along a path are an unbiased estimate of the number of nodes in each
+    // row and, if the path reaches the last row, of the number of solutions
+    // estimate[0] receives the estimated solutions (without the symmetry factor) and
+    // estimate[1] the estimated nodes, averaged over the paths
+    static void probe(int n, Constellation constellation, int[] jklQueens, int probes, RandomGenerator random,
+	    double[] estimate) {
+	final int start = constellation.getStart();
+	final int ld0 = startLd(n, constellation), rd0 = startRd(n, constellation), col0 = startCol(n, constellation);
+
+	double solutions = 0, nodes = 0;
+	for (int p = 0; p < probes; p++) {
+	    int ld = ld0, rd = rd0, col = col0;
+	    double width = 1;
+	    for (int row = start; row <= n - 2; row++) {
+		int free = ~(ld | rd | col | jklQueens[row]);
+		if (free == 0)
+		    break;
+		width *= Integer.bitCount(free);
+		nodes += width;
+		if (row == n - 2) {
+		    solutions += width;
+		    break;
+		}
+
+		// choose one of the free fields at random
+		for (int r = random.nextInt(Integer.bitCount(free)); r > 0; r--)
+		    free &= free - 1;
+		int bit = free & -free;
+		ld = (ld | bit) << 1;
+		rd = (rd | bit) >>> 1;
+		col |= bit;
+	    }
+	}
+	estimate[0] = solutions / probes;
+	estimate[1] = nodes / probes;
+    }
+
+    // sorts the constellations by estimateCost(), most expensive first, and returns
+    // their costs in the new order
+    // there can be millions of constellations, so instead of a boxed cost per
+    // constellation, the cost (as the bits of a float, which sort like the value) is
+    // packed together with the index of the constellation into a long
+    // the costs are estimated by the given number of threads, each takes every
+    // [threads]th constellation
+    static long[] sortByCost(int n, List<Constellation> constellations, int threads) {
+	final long[] costs = new long[constellations.size()];
+	final long[] keys = new long[constellations.size()];
+	if (threads <= 1) {
+	    estimateCosts(n, constellations, 0, 1, costs, keys);
+	} else {
+	    ExecutorService executor = Executors.newFixedThreadPool(threads);
+	    var futures = new ArrayList<Future<?>>();
+	    for (int t = 0; t < threads; t++) {
+		final int first = t;
+		futures.add(executor.submit(() -> estimateCosts(n, constellations, first, threads, costs, keys)));
+	    }
+	    executor.shutdown();
+	    try {
+		for (var future : futures)
+		    future.get();
+	    } catch (InterruptedException e) {
+		throw new RuntimeException("could not wait for cost estimation threads to terminate: " + e.getMessage(),
+			e);
+	    } catch (ExecutionException e) {
+		throw new RuntimeException("could not estimate cost: " + e.getCause().getMessage(), e.getCause());
+	    }
+	}
+	Arrays.sort(keys);
+
+	final var sorted = new ArrayList<Constellation>(keys.length);
+	final long[] sortedCosts = new long[keys.length];
+	for (int i = 0; i < keys.length; i++) {
+	    final int idx = (int) keys[keys.length - 1 - i];
+	    sorted.add(constellations.get(idx));
+	    sortedCosts[i] = costs[idx];
+	}
+	for (int i = 0; i < keys.length; i++)
+	    constellations.set(i, sorted.get(i));
+	return sortedCosts;
+    }
+
+    // the costs and sort keys of the constellations first, first + step, ...
+    private static void estimateCosts(int n, List<Constellation> constellations, int first, int step, long[] costs,
+	    long[] keys) {
+	for (int i = first; i < keys.length; i += step) {
+	    costs[i] = estimateCost(n, constellations.get(i));
+	    keys[i] = (long) Float.floatToIntBits(costs[i]) << 32 | i;
+	}
+    }
+
+    // counts the solutions of a board that is too small for constellations by plain
+    // backtracking
+    static long smallBoardSolutions(int n) {
+	return smallBoardSolutions((1 << n) - 1, 0, 0, 0);
+    }
+
+    private static long smallBoardSolutions(int mask, int ld, int rd, int col) {
+	if (col == mask)
+	    return 1;
+	long solutions = 0;
+	int free = ~(ld | rd | col) & mask;
+	while (free > 0) {
+	    int bit = free & (-free);
+	    free &= ~bit;
+	    solutions += smallBoardSolutions(mask, (ld | bit) << 1, (rd | bit) >>> 1, col | bit);
+	}
+	return solutions;
+    }
+
     static boolean oneQueenInCorner(int n, int ijkl) {
 	return getj(ijkl) == n - 1 && getl(ijkl) == n - 1;
     }
@@ -70,6 +70,39 @@ public class ConstellationsGenerator {
 	}
     }
 
+    /**
+     * Counts the constellations that {@link #generate(int)} would generate for the
+     * given number of preset queens, without creating them.
+     * 
+     * @param presetQueens the number of preset queens.
+     * @return the number of constellations.
+     */
+    public long count(int presetQueens) {
+	if (presetQueens < 4)
+	    throw new IllegalArgumentException(
+		    "could not initialize ConstellationsGenerator: presetQueens must be >=4");
+	this.presetQueens = presetQueens;
+
+	generateIjkls();
+
+	long count = 0;
+	int i, j, k, l, ld, rd, col;
+	for (int ijkl : ijklList) {
+	    ijkl = jAsMin(n, ijkl);
+	    i = geti(ijkl);
+	    j = getj(ijkl);
+	    k = getk(ijkl);
+	    l = getl(ijkl);
+
+	    // same as in generate()
+	    ld = (L >>> (i - 1)) | (1 << (n - k));
+	    rd = (L >>> (i + 1)) | (1 << (l - 1));
+	    col = 1 | L | (L >>> i) | (L >>> j);
+	    count += countPresetQueens(ijkl, ld, rd, col, 1, j == n - 1 ? 3 : 4);
+	}
+	return count;
+    }
+
     public List<Constellation> generateSubConstellations(List<Constellation> baseConstellations, int extraQueens) {
 	var constellations = new ArrayList<Constellation>();
 	generateSubConstellations(baseConstellations, extraQueens, constellation -> constellations.add(constellation));
@@ -179,4 +212,23 @@ public class ConstellationsGenerator {
 	    }
 	}
     }
+
+    // like placePresetQueens(), but only counts the sub constellations
+    private long countPresetQueens(int ijkl, int ld, int rd, int col, int row, int queens) {
+	if (row == getk(ijkl) || row == getl(ijkl))
+	    return countPresetQueens(ijkl, ld << 1, rd >>> 1, col, row + 1, queens);
+	if (queens == presetQueens)
+	    return 1;
+
+	long count = 0;
+	int free = (~(ld | rd | col | (getLD(ijkl, L) >>> (n - 1 - row)) | (getRD(ijkl, L) << (n - 1 - row))))
+		& mask;
+	int bit;
+	while (free > 0) {
+	    bit = free & (-free);
+	    free -= bit;
+	    count += countPresetQueens(ijkl, (ld | bit) << 1, (rd | bit) >>> 1, col | bit, row + 1, queens + 1);
+	}
+	return count;
+    }
 }
@@ -0,0 +1,171 @@
+package de.nqueensfaf.impl;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
+import java.util.function.ToLongFunction;
+
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+
+// generates the source code of an N-specialised cpu engine from the source of the
+// RecursiveCpuEngine, compiles it with the system java compiler and loads it as a
+// hidden class
+// the source is copied into the resources at build time (see the pom) and the
+// declaration and assignments of its board size fields are replaced by constants,
+// so that javac can fold everything that only depends on N
+// the compiled engines are cached by N for the lifetime of the JVM
+class CpuEngineCompiler {
+
+    private static final String SOURCE = "de/nqueensfaf/impl/RecursiveCpuEngine.java";
+    private static final String CLASS_NAME = "RecursiveCpuEngine";
+    private static final String FIELDS = "    private final int n, n3, n4, L, L3, L4;\n";
+    private static final String FIELD_ASSIGNMENTS = "\tthis.n = n;\n\tn3 = n - 3;\n\tn4 = n - 4;\n\tL = 1 << (n - 1);\n"
+	    + "\tL3 = 1 << n3;\n\tL4 = 1 << n4;\n";
+    private static final Map<Integer, MethodHandle> constructors = new ConcurrentHashMap<Integer, MethodHandle>();
+
+    private CpuEngineCompiler() {
+    }
+
+    // true, if a java compiler is available (i.e. running on a JDK)
+    static boolean isAvailable() {
+	return ToolProvider.getSystemJavaCompiler() != null;
+    }
+
+    // returns a factory for instances of the engine for board size n, each thread
+    // needs its own instance
+    @SuppressWarnings("unchecked")
+    static Factory get(int n) {
+	final MethodHandle constructor = constructors.computeIfAbsent(n, CpuEngineCompiler::compile);
+	return (boardSize, completionTable, completionRows, transpositionTable, transpositionRows, aborted) -> {
+	    try {
+		return (ToLongFunction<int[]>) constructor.invoke(boardSize, completionTable, completionRows,
+			transpositionTable, transpositionRows, aborted);
+	    } catch (Throwable e) {
+		throw new IllegalStateException("could not create generated cpu engine: " + e.getMessage(), e);
+	    }
+	};
+    }
+
+    // the N-specialised copy of the RecursiveCpuEngine
+    private static String specialise(String source, int n) {
+	if (!source.contains(FIELDS) || !source.contains(FIELD_ASSIGNMENTS))
+	    throw new IllegalStateException("could not generate cpu engine: board size fields of " + CLASS_NAME
+		    + " not found");
+	return source
+		.replace(FIELDS,
+			"    private static final int n = " + n
+				+ ", n3 = n - 3, n4 = n - 4, L = 1 << (n - 1), L3 = 1 << n3, L4 = 1 << n4;\n")
+		.replace(FIELD_ASSIGNMENTS, "").replace(CLASS_NAME, className(n));
+    }
+
+    private static String className(int n) {
+	return "GeneratedCpuEngine" + n;
+    }
+
+    private static MethodHandle compile(int n) {
+	final String className = className(n);
+	final String source = specialise(readSource(), n);
+
+	JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+	if (compiler == null)
+	    throw new IllegalStateException("could not compile cpu engine: no java compiler available");
+
+	var classFile = new ByteArrayOutputStream();
+	var sourceFile = new SimpleJavaFileObject(
+		URI.create("string:///de/nqueensfaf/impl/" + className + JavaFileObject.Kind.SOURCE.extension),
+		JavaFileObject.Kind.SOURCE) {
+	    @Override
+	    public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+		return source;
+	    }
+	};
+	JavaFileManager fileManager = new ForwardingJavaFileManager<JavaFileManager>(
+		compiler.getStandardFileManager(null, null, null)) {
+	    @Override
+	    public JavaFileObject getJavaFileForOutput(Location location, String name, JavaFileObject.Kind kind,
+		    FileObject sibling) {
+		return new SimpleJavaFileObject(URI.create("bytes:///" + name.replace('.', '/') + kind.extension),
+			kind) {
+		    @Override
+		    public OutputStream openOutputStream() {
+			return classFile;
+		    }
+		};
+	    }
+	};
+
+	var options = new ArrayList<String>(List.of("-proc:none", "-g:none"));
+	options.addAll(classPath());
+	var diagnostics = new StringWriter();
+	boolean success = compiler.getTask(diagnostics, fileManager, null, options, null, List.of(sourceFile)).call();
+	if (!success)
+	    throw new IllegalStateException("could not compile cpu engine: " + diagnostics);
+
+	try {
+	    var lookup = MethodHandles.lookup().defineHiddenClass(classFile.toByteArray(), true);
+	    return lookup.findConstructor(lookup.lookupClass(), MethodType.methodType(void.class, int.class,
+		    byte[].class, int.class, TranspositionTable.class, int.class, BooleanSupplier.class));
+	} catch (IllegalAccessException | NoSuchMethodException e) {
+	    throw new IllegalStateException("could not load compiled cpu engine: " + e.getMessage(), e);
+	}
+    }
+
+    // the engine refers to other classes of this package (e.g. the
+    // TranspositionTable), so they are compiled against the location this class was
+    // loaded from, if it is known
+    private static List<String> classPath() {
+	var codeSource = CpuEngineCompiler.class.getProtectionDomain().getCodeSource();
+	if (codeSource == null || codeSource.getLocation() == null)
+	    return List.of();
+	try {
+	    return List.of("-classpath", Path.of(codeSource.getLocation().toURI()).toString());
+	} catch (URISyntaxException | IllegalArgumentException e) {
+	    return List.of();
+	}
+    }
+
+    private static String readSource() {
+	InputStream in = CpuEngineCompiler.class.getClassLoader().getResourceAsStream(SOURCE);
+	if (in == null)
+	    throw new IllegalStateException("could not read cpu engine source: resource " + SOURCE + " not found");
+	try (BufferedReader br = new BufferedReader(new InputStreamReader(in))) {
+	    StringBuilder result = new StringBuilder();
+	    String line;
+	    while ((line = br.readLine()) != null) {
+		result.append(line);
+		result.append("\n");
+	    }
+	    return result.toString();
+	} catch (IOException e) {
+	    throw new IllegalStateException("could not read cpu engine source: " + e.getMessage(), e);
+	}
+    }
+
+    // creates the instances of an engine, with the arguments of the constructor of
+    // the RecursiveCpuEngine
+    interface Factory {
+	ToLongFunction<int[]> create(int n, byte[] completionTable, int completionRows,
+		TranspositionTable transpositionTable, int transpositionRows, BooleanSupplier aborted);
+    }
+}
@@ -3,18 +3,29 @@ package de.nqueensfaf.impl;
 import static de.nqueensfaf.impl.ConstellationUtils.getj;
 import static de.nqueensfaf.impl.ConstellationUtils.getk;
 import static de.nqueensfaf.impl.ConstellationUtils.getl;
+import static de.nqueensfaf.impl.ConstellationUtils.smallBoardSolutions;
+import static de.nqueensfaf.impl.ConstellationUtils.sortByCost;
 import static de.nqueensfaf.impl.ConstellationUtils.symmetry;
 
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+import java.util.function.ToLongFunction;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
@@ -24,17 +35,65 @@ import com.esotericsoftware.kryo.io.Output;
 
 import de.nqueensfaf.core.AbstractSolver;
 import de.nqueensfaf.core.ExecutionState;
+import de.nqueensfaf.core.ProgressSnapshot;
 
 public class CpuSolver extends AbstractSolver {
 
+    // targets of the automatic choice of the preset queens
+    private static final int CONSTELLATIONS_PER_THREAD = 1000;
+    private static final int CONSTELLATION_MEMORY = 256; // including queues, costs and journal
+    // random paths per sampled constellation in estimate() and the sub
+    // constellations that are solved for measuring the time per node: free rows of
+    // each and estimated nodes of all of them
+    private static final int ESTIMATE_PROBES = 16;
+    private static final int CALIBRATION_ROWS = 14;
+    private static final double CALIBRATION_NODES = 2e7;
+    // after cancel() or a failure, the engines stop solving a constellation within
+    // its first rows and the constellation stays unsolved
+    static final int CONTROL_ROWS = 3;
+    // the constellations need at least 4 preset queens and 2 free rows below them,
+    // smaller boards are solved directly by smallBoardSolutions()
+    private static final int MIN_N = 6;
+
     private List<Constellation> constellations = new ArrayList<Constellation>();
-    private final List<List<Constellation>> threadConstellations = new ArrayList<List<Constellation>>();
+    private final List<Deque<Constellation>> threadConstellations = new CopyOnWriteArrayList<Deque<Constellation>>();
+    // the threads of the current run, empty if the solver is not running
+    private final List<CpuSolverThread> workers = new ArrayList<CpuSolverThread>();
     private long start, duration, storedDuration;
     private boolean stateLoaded;
-    private int presetQueens = 5, threadCount = 1;
+    private int presetQueens = 5;
+    private boolean autoPresetQueens;
+    private long memoryBudget = Runtime.getRuntime().maxMemory() / 2;
+    private volatile int threadCount = 1;
+    private boolean workStealing = true, constellationSplitting = true, costOrdering = true;
+    private Engine engine = Engine.RECURSIVE;
+    // factory for the instances of the generated engine of the current run
+    private CpuEngineCompiler.Factory generatedEngines;
+    private long completionTableMemory = CompletionTable.size(3);
+    // number of rows solved by the completion table in the current run, 0 if none
+    private int completionDepth;
+    private long transpositionTableMemory = 0;
+    private int transpositionTableRows = 6;
     
-    private final AtomicLong solutions = new AtomicLong(0);
-    private final AtomicInteger solvedConstellations = new AtomicInteger(0); // for progress
+    private final ProgressCounter progressCounter = new ProgressCounter(); // solutions and progress
+    private volatile UniqueSolutionsCounter uniqueSolutions = new UniqueSolutionsCounter(0);
+    // false for the calibration runs of estimate()
+    private boolean countSymmetricSolutions = true;
+
+    // bookkeeping for splitting constellations at runtime
+    private final AtomicInteger queuedConstellations = new AtomicInteger(0); // waiting in the queues
+    private final AtomicInteger remainingConstellations = new AtomicInteger(0); // queued or being solved
+    private final Map<Constellation, SplitConstellation> splitConstellations = new ConcurrentHashMap<Constellation, SplitConstellation>(); // sub constellation -> split
+    // the first exception of a thread, the other threads stop and solve() rethrows it
+    private final AtomicReference<Throwable> workerFailure = new AtomicReference<Throwable>();
+
+    // statistics of the vector engine
+    private final AtomicLong vectorSteps = new AtomicLong(0), activeVectorLaneSteps = new AtomicLong(0);
+    // statistics of the transposition tables
+    private final AtomicLong transpositionLookups = new AtomicLong(0), transpositionHits = new AtomicLong(0);
+
+    // results of the current run, used for checkpoints
+    private volatile ResultJournal journal;
 
     private final Kryo kryo = new Kryo();
 
@@ -53,15 +112,252 @@ public class CpuSolver extends AbstractSolver {
 	return presetQueens;
     }
 
+    /**
+     * Enables or disables the automatic choice of the number of preset queens. If
+     * enabled, {@link #choosePresetQueens()} is called at the start of each run
+     * that does not continue a loaded state.
+     * 
+     * @param autoPresetQueens true to choose the preset queens automatically
+     *                         (default false).
+     */
+    public void setAutoPresetQueens(boolean autoPresetQueens) {
+	this.autoPresetQueens = autoPresetQueens;
+    }
+
+    public boolean isAutoPresetQueens() {
+	return autoPresetQueens;
+    }
+
+    /**
+     * Sets the memory that the constellations may take up. Used by
+     * {@link #choosePresetQueens()} to limit the number of constellations.
+     * 
+     * @param memoryBudget the memory in bytes (default: half of the maximum heap
+     *                     size).
+     */
+    public void setMemoryBudget(long memoryBudget) {
+	if (memoryBudget <= 0)
+	    throw new IllegalArgumentException("invalid value for memory budget: not a number >0");
+	this.memoryBudget = memoryBudget;
+    }
+
+    public long getMemoryBudget() {
+	return memoryBudget;
+    }
+
+    /**
+     * Chooses the number of preset queens for the current board size and thread
+     * count and sets it. The smallest number of preset queens is chosen that
+     * results in at least 1000 constellations per thread, as long as the
+     * constellations fit into the memory budget (about 256 bytes per
+     * constellation).
+     * 
+     * @return the chosen number of preset queens and the number of constellations
+     *         it results in.
+     */
+    public AutoPresetQueens.Choice choosePresetQueens() {
+	var choice = AutoPresetQueens.choose(getN(), (long) CONSTELLATIONS_PER_THREAD * threadCount,
+		memoryBudget / CONSTELLATION_MEMORY);
+	presetQueens = choice.presetQueens();
+	return choice;
+    }
+
+    /**
+     * Sets the number of threads that solve the constellations. The thread count
+     * can also be changed while the solver is running: new threads take
+     * constellations from the queues of the other threads (if work stealing is
+     * disabled, the queued constellations are spread over all threads), removed
+     * threads finish the constellation they are currently solving and hand their
+     * queued constellations over to the remaining threads.
+     * 
+     * @param threadCount the number of threads (default 1).
+     */
     public void setThreadCount(int threadCount) {
 	if (threadCount < 1)
 	    throw new IllegalArgumentException("invalid value for thread count: not a number >0");
-	this.threadCount = threadCount;
+	synchronized (workers) {
+	    this.threadCount = threadCount;
+	    if (!workers.isEmpty())
+		resizeWorkers();
+	}
     }
 
     public int getThreadCount() {
 	return threadCount;
     }
+
+    /**
+     * Enables or disables work stealing. If enabled, a thread that has solved all
+     * of its own constellations takes unsolved constellations from the back of the
+     * queues of the other threads instead of becoming idle. If disabled, each
+     * thread only solves the constellations that were assigned to it when the
+     * solver was started.
+     * 
+     * @param workStealing {@code true} to enable work stealing (default),
+     *                     {@code false} to disable it.
+     */
+    public void setWorkStealing(boolean workStealing) {
+	this.workStealing = workStealing;
+    }
+
+    public boolean isWorkStealing() {
+	return workStealing;
+    }
+
+    /**
+     * Enables or disables the splitting of constellations at runtime. If enabled
+     * and fewer constellations than threads are left in the queues, a thread that
+     * takes a constellation does not solve it directly but splits it into sub
+     * constellations with one more queen placed, so that the otherwise idle
+     * threads can steal parts of it. This keeps all threads busy at the end of the
+     * solving process. Constellations that are already being solved are never
+     * split. The sub constellations only live in memory, saved progress always
+     * refers to the original constellations.
+     * 
+     * @param constellationSplitting {@code true} to enable splitting (default),
+     *                               {@code false} to disable it.
+     */
+    public void setConstellationSplitting(boolean constellationSplitting) {
+	this.constellationSplitting = constellationSplitting;
+    }
+
+    public boolean isConstellationSplitting() {
+	return constellationSplitting;
+    }
+
+    /**
+     * Enables or disables the ordering of the constellations by their estimated
+     * cost. If enabled, the constellations are solved most expensive first (see
+     * {@link ConstellationUtils#estimateCost(int, Constellation)}), so that no
+     * expensive constellation is left for the end of the solving process. The
+     * costs are estimated by as many threads as the solver uses (see
+     * {@link #setThreadCount(int)}) before the constellations are solved, for
+     * millions of constellations this takes a few seconds.
+     * 
+     * @param costOrdering {@code true} to enable the ordering (default),
+     *                     {@code false} to solve the constellations in the order
+     *                     they are generated.
+     */
+    public void setCostOrdering(boolean costOrdering) {
+	this.costOrdering = costOrdering;
+    }
+
+    public boolean isCostOrdering() {
+	return costOrdering;
+    }
+
+    /**
+     * Sets the algorithm that is used by the threads to solve a constellation. All
+     * engines produce the same results, they only differ in speed.
+     * 
+     * @param engine the engine to use.
+     * @see Engine
+     */
+    public void setEngine(Engine engine) {
+	if (engine == null)
+	    throw new IllegalArgumentException("invalid value for engine: must not be null");
+	this.engine = engine;
+    }
+
+    public Engine getEngine() {
+	return engine;
+    }
+
+    /**
+     * Sets the maximum memory of the completion table. The completion table
+     * contains the number of ways to fill the last rows of the board for every
+     * possible occupation of these rows, so that the {@link Engine#RECURSIVE}
+     * engine can replace the last levels of its search by a table lookup. The
+     * table does not depend on the board size and is built once (when a solver
+     * first needs it) for the biggest number of rows that fits into the given
+     * memory:
+     * <ul>
+     * <li>2 rows: 32 bytes</li>
+     * <li>3 rows: 8 KiB (default)</li>
+     * <li>4 rows: 32 MiB</li>
+     * </ul>
+     * 
+     * @param completionTableMemory the maximum memory in bytes, 0 to disable the
+     *                              completion table.
+     */
+    public void setCompletionTableMemory(long completionTableMemory) {
+	if (completionTableMemory < 0)
+	    throw new IllegalArgumentException("invalid value for completion table memory: not a number >=0");
+	this.completionTableMemory = completionTableMemory;
+    }
+
+    public long getCompletionTableMemory() {
+	return completionTableMemory;
+    }
+
+    /**
+     * Sets the memory of the transposition tables. If enabled, each thread of the
+     * {@link Engine#RECURSIVE} engine stores the number of solutions of the states
+     * (occupied diagonals and columns) it reaches in the last rows of the board, so
+     * that a state that is reached again by another constellation does not have to
+     * be counted again. The memory is divided equally between the threads. When a
+     * table is full, states with fewer rows left are replaced first.
+     * 
+     * @param transpositionTableMemory the memory of all transposition tables in
+     *                                 bytes, 0 to disable them (default).
+     * @see #setTranspositionTableRows(int)
+     * @see #getTranspositionTableHitRate()
+     */
+    public void setTranspositionTableMemory(long transpositionTableMemory) {
+	if (transpositionTableMemory < 0)
+	    throw new IllegalArgumentException("invalid value for transposition table memory: not a number >=0");
+	this.transpositionTableMemory = transpositionTableMemory;
+    }
+
+    public long getTranspositionTableMemory() {
+	return transpositionTableMemory;
+    }
+
+    /**
+     * Sets below which row the states are stored in the transposition tables,
+     * counted from the last free row of a constellation. States with more rows left
+     * are reached too rarely to be worth storing, states with fewer rows are
+     * cheaper to count than to look up.
+     * 
+     * @param transpositionTableRows the maximum number of rows left to the last
+     *                               free row (default 6).
+     * @see #setTranspositionTableMemory(long)
+     */
+    public void setTranspositionTableRows(int transpositionTableRows) {
+	if (transpositionTableRows < 1)
+	    throw new IllegalArgumentException("invalid value for transposition table rows: not a number >0");
+	this.transpositionTableRows = transpositionTableRows;
+    }
+
+    public int getTranspositionTableRows() {
+	return transpositionTableRows;
+    }
+
+    /**
+     * Returns the fraction of the lookups in the transposition tables during the
+     * last (or current) run that found the state.
+     * 
+     * @return the hit rate between 0 and 1, or 0 if the transposition tables were
+     *         not used.
+     * @see #setTranspositionTableMemory(long)
+     */
+    public float getTranspositionTableHitRate() {
+	long lookups = transpositionLookups.get();
+	if (lookups == 0)
+	    return 0;
+	return (float) transpositionHits.get() / lookups;
+    }
+
+    /**
+     * Returns the number of lookups in the transposition tables during the last (or
+     * current) run.
+     * 
+     * @return the number of lookups.
+     * @see #getTranspositionTableHitRate()
+     */
+    public long getTranspositionTableLookups() {
+	return transpositionLookups.get();
+    }
     
     @Override
     public void setN(int n) {
@@ -72,11 +368,14 @@ public class CpuSolver extends AbstractSolver {
 
     @Override
     public void save(String path) throws IOException {
-	if (!getExecutionState().isBusy())
-	    throw new IllegalStateException("progress of CpuSolver can only be saved during the solving process");
+	if (!getExecutionState().isBusy() && !stateLoaded)
+	    throw new IllegalStateException(
+		    "progress of CpuSolver can only be saved during the solving process or after it was canceled");
 
+	var checkpoint = getCheckpoint();
 	try (Output output = new Output(new GZIPOutputStream(new FileOutputStream(path)))) {
-	    kryo.writeObject(output, new CpuSolverProgressState(getN(), getDuration(), constellations));
+	    kryo.writeObject(output,
+		    new CpuSolverProgressState(checkpoint.n(), checkpoint.duration(), checkpoint.constellations()));
 	    output.flush();
 	} catch (IOException e) {
 	    throw new IOException("could not write cpu solver progress to file: " + e.getMessage(), e);
@@ -103,26 +402,141 @@ public class CpuSolver extends AbstractSolver {
 	setN(n);
 	this.storedDuration = storedDuration;
 	this.constellations = constellations;
-	
-	// update solvedConstellations and solution count
-	solutions.set(0);
-	solvedConstellations.set(0);
+	countSolvedConstellations();
+	stateLoaded = true;
+    }
+
+    // updates the progress and solution count from the solved constellations
+    private void countSolvedConstellations() {
+	progressCounter.reset();
+	uniqueSolutions = new UniqueSolutionsCounter(getN());
 	for (var c : constellations) {
 	    if (c.getSolutions() >= 0) {
-		solutions.addAndGet(c.getSolutions());
-		solvedConstellations.incrementAndGet();
+		progressCounter.add(c.getSolutions());
+		uniqueSolutions.add(c.getSolutions());
 	    }
 	}
-	
-	stateLoaded = true;
+    }
+
+    /**
+     * Returns a consistent snapshot of the progress of the solver without pausing
+     * its threads. Each result of a constellation is stamped with a sequence number
+     * when it is solved. The checkpoint contains exactly the results that were
+     * stamped before the checkpoint was taken, its solution count is their sum and
+     * its duration is the duration at that moment. Constellations that are solved
+     * while the checkpoint is taken are unsolved in the checkpoint. The returned
+     * constellations are copies, so the checkpoint does not change afterwards.
+     * 
+     * @return the checkpoint.
+     * @see #save(String)
+     */
+    public Checkpoint getCheckpoint() {
+	var journal = this.journal;
+	var checkpointConstellations = new ArrayList<Constellation>();
+	long checkpointSolutions = 0;
+	long checkpointDuration;
+
+	if (journal == null) {
+	    // not running, so nothing changes
+	    checkpointDuration = getDuration();
+	    for (var c : constellations) {
+		checkpointConstellations.add(copy(c, c.getSolutions()));
+		if (c.getSolutions() >= 0)
+		    checkpointSolutions += c.getSolutions();
+	    }
+	    return new Checkpoint(getN(), checkpointDuration, checkpointSolutions, checkpointConstellations);
+	}
+
+	final long sequence = journal.sequence.get();
+	checkpointDuration = getDuration();
+	for (int i = 0; i < journal.constellations.size(); i++) {
+	    final long stamp = journal.stamps.get(i);
+	    final long constellationSolutions = stamp >= 0 && stamp <= sequence ? journal.results[i] : -1;
+	    checkpointConstellations.add(copy(journal.constellations.get(i), constellationSolutions));
+	    if (constellationSolutions >= 0)
+		checkpointSolutions += constellationSolutions;
+	}
+	return new Checkpoint(getN(), checkpointDuration, checkpointSolutions, checkpointConstellations);
+    }
+
+    /**
+     * Estimates the number of solutions and the duration of a run of this solver
+     * without solving the board. A random sample of the constellations (generated
+     * with the configured number of preset queens) is drawn and the search tree of
+     * each sampled constellation is estimated by Knuth's method, i.e. by following
+     * random paths from its start row down to the last row. The estimates are
+     * scaled up to all constellations.
+     * <p>
+     * The duration is projected from the estimated number of nodes of the search
+     * tree and the time per node, which is measured by solving random sub
+     * constellations of the board with the last 14 rows free with the configured
+     * engine (this takes a few seconds). It assumes that the configured threads
+     * scale linearly.
+     * 
+     * @param samples the number of sampled constellations, more samples narrow the
+     *                confidence intervals.
+     * @return the estimates and their 95% confidence intervals.
+     */
+    public Estimate estimate(int samples) {
+	if (samples < 2)
+	    throw new IllegalArgumentException("invalid value for samples: not a number >1");
+	if (getN() == 0)
+	    throw new IllegalStateException("could not estimate: board size was not set");
+
+	var estimator = new MonteCarloEstimator(getN(), getN());
+	var constellations = new ConstellationsGenerator(getN()).generate(presetQueens);
+	if (constellations.isEmpty())
+	    throw new IllegalStateException("could not estimate: board size " + getN() + " has no constellations");
+	var result = estimator.estimate(constellations, samples, ESTIMATE_PROBES);
+
+	// time per node, measured by solving two random sets of small sub
+	// constellations of the board with the configured engine, the difference of
+	// the two runs eliminates the fixed costs of a run
+	// (small boards are sampled up to their own size)
+	final double calibrationNodes = Math.min(CALIBRATION_NODES, result.nodes());
+	final double[] nodesA = new double[1], nodesB = new double[1];
+	var sampleA = estimator.sample(constellations, CALIBRATION_ROWS, calibrationNodes, ESTIMATE_PROBES, nodesA);
+	var sampleB = estimator.sample(constellations, CALIBRATION_ROWS, 3 * calibrationNodes, ESTIMATE_PROBES, nodesB);
+	var calibrationSolver = new CpuSolver();
+	calibrationSolver.setEngine(engine);
+	calibrationSolver.setCompletionTableMemory(completionTableMemory);
+	calibrationSolver.setTranspositionTableMemory(transpositionTableMemory);
+	calibrationSolver.setTranspositionTableRows(transpositionTableRows);
+	calibrationSolver.setUpdateInterval(0);
+	calibrationSolver.countSymmetricSolutions = false;
+	final long[] durations = new long[2];
+	for (int run = 0; run < 4; run++) { // the first two runs warm up the JIT compiler
+	    var sample = run % 2 == 0 ? sampleA : sampleB;
+	    for (var c : sample)
+		c.setSolutions(-1);
+	    calibrationSolver.reset(); // clears the loaded list, so a copy is loaded
+	    calibrationSolver.load(getN(), 0, new ArrayList<Constellation>(sample));
+	    calibrationSolver.start();
+	    durations[run % 2] = calibrationSolver.getDuration();
+	}
+	double millisPerNode = (durations[1] - durations[0]) / (nodesB[0] - nodesA[0]);
+	if (millisPerNode <= 0)
+	    millisPerNode = durations[1] / nodesB[0];
+	millisPerNode /= threadCount;
+
+	final double solutionsError = 1.96 * result.solutionsError(), nodesError = 1.96 * result.nodesError();
+	return new Estimate(result.solutions(), Math.max(0, result.solutions() - solutionsError),
+		result.solutions() + solutionsError, result.nodes(), Math.round(result.nodes() * millisPerNode),
+		Math.round(Math.max(0, result.nodes() - nodesError) * millisPerNode),
+		Math.round((result.nodes() + nodesError) * millisPerNode));
+    }
+
+    private static Constellation copy(Constellation c, long solutions) {
+	return new Constellation(c.getLd(), c.getRd(), c.getCol(), c.getStartIjkl(), solutions);
     }
 
     @Override
     public void reset() {
-	solutions.set(0);
-	solvedConstellations.set(0);
+	progressCounter.reset();
+	uniqueSolutions = new UniqueSolutionsCounter(getN());
 	duration = start = storedDuration = 0;
 	threadConstellations.clear();
+	splitConstellations.clear();
 	constellations.clear();
 	stateLoaded = false;
     }
@@ -130,843 +544,590 @@ public class CpuSolver extends AbstractSolver {
     @Override
     public long getDuration() {
 	if (getExecutionState().isBefore(ExecutionState.FINISHED) && start != 0)
-	    return System.currentTimeMillis() - start + storedDuration;
+	    return System.currentTimeMillis() - start + storedDuration - getPausedDuration();
 	else if (getExecutionState().isIdle() && stateLoaded)
 	    return storedDuration;
 	return duration;
     }
 
+    /**
+     * Returns whether the {@link Engine#VECTOR} engine can be used, i.e. whether the
+     * module {@code jdk.incubator.vector} is available (JVM option
+     * {@code --add-modules jdk.incubator.vector}).
+     * 
+     * @return {@code true} if the vector engine is available, otherwise
+     *         {@code false}.
+     */
+    public static boolean isVectorEngineAvailable() {
+	return ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+    }
+
+    /**
+     * Returns whether the {@link Engine#GENERATED} engine can be used, i.e. whether
+     * a Java compiler is available at runtime (the solver runs on a JDK, not on a
+     * JRE).
+     * 
+     * @return {@code true} if the generated engine is available, otherwise
+     *         {@code false}.
+     */
+    public static boolean isGeneratedEngineAvailable() {
+	return CpuEngineCompiler.isAvailable();
+    }
+
+    /**
+     * Returns the lane utilization of the {@link Engine#VECTOR} engine during the
+     * last (or current) run, i.e. the average fraction of the vector lanes that were
+     * working on a constellation per step. Lanes become idle at the end of the run,
+     * when no more constellations are left to fill them.
+     * 
+     * @return the lane utilization between 0 and 1, or 0 if the vector engine was
+     *         not used.
+     */
+    public float getLaneUtilization() {
+	long steps = vectorSteps.get();
+	if (steps == 0)
+	    return 0;
+	return (float) activeVectorLaneSteps.get() / (steps * VectorCpuEngine.lanes());
+    }
+
     @Override
     public float getProgress() {
 	if(constellations.size() == 0)
 	    return 0;
-	return (float) solvedConstellations.get() / constellations.size();
+	return (float) progressCounter.getSolvedConstellations() / constellations.size();
     }
 
     @Override
     public long getSolutions() {
-	return solutions.get();
+	return progressCounter.getSolutions();
+    }
+
+    @Override
+    public ProgressSnapshot getProgressSnapshot() {
+	return progressCounter.snapshot(getDuration(), constellations.size());
+    }
+
+    /**
+     * Returns the number of unique solutions (solutions that can not be transformed
+     * into each other by rotation or reflection) found so far. It is derived from
+     * the solutions of the constellations, while they are solved, and from the
+     * solutions that are symmetric by rotation. These are counted by the searches
+     * of the {@link SymSolver}, which run in the thread that called
+     * {@link #start()} while the solver threads are solving the board.
+     * <p>
+     * The number is exact when all constellations of the board are solved. The
+     * {@link SymSolver} computes the same number independently.
+     * 
+     * @return the number of unique solutions.
+     */
+    public long getUniqueSolutions() {
+	return uniqueSolutions.getUniqueSolutions();
     }
 
     @Override
     public void solve() {
 	duration = 0;
 	threadConstellations.clear();
+	splitConstellations.clear();
+	vectorSteps.set(0);
+	activeVectorLaneSteps.set(0);
+	transpositionLookups.set(0);
+	transpositionHits.set(0);
+	workerFailure.set(null);
 	start = System.currentTimeMillis();
 
+	if (getN() < MIN_N) {
+	    progressCounter.reset();
+	    uniqueSolutions = new UniqueSolutionsCounter(getN());
+	    constellations = new ArrayList<Constellation>();
+	    final long solutions = smallBoardSolutions(getN());
+	    progressCounter.add(solutions);
+	    uniqueSolutions.add(solutions);
+	    uniqueSolutions.countSymmetricSolutions(() -> true, () -> false);
+	    storedDuration = 0;
+	    duration = System.currentTimeMillis() - start - getPausedDuration();
+	    stateLoaded = false;
+	    return;
+	}
+
 	if (!stateLoaded) {
-	    solutions.set(0);
-	    solvedConstellations.set(0);
+	    progressCounter.reset();
+	    uniqueSolutions = new UniqueSolutionsCounter(getN());
 	    storedDuration = 0;
-	    constellations = new ConstellationsGenerator(getN()).generate(presetQueens);
+	    if (autoPresetQueens)
+		choosePresetQueens();
+	    // at most n - 2 preset queens, so that the engines have rows left
+	    constellations = new ConstellationsGenerator(getN()).generate(Math.min(presetQueens, getN() - 2));
 	} else {
 	    stateLoaded = false;
 	}
 
-	// split starting constellations in [threadcount] lists (splitting the work for
-	// the threads)
-	for (int i = 0; i < threadCount; i++) {
-	    threadConstellations.add(new ArrayList<Constellation>());
-	}
-	int i = constellations.size() - 1;
-	for (Constellation c : constellations) {
-	    if (c.getSolutions() >= 0) // ignore loaded constellations that have already been solved
-		continue;
-	    threadConstellations.get((i--) % threadCount).add(c);
+	journal = new ResultJournal(constellations);
+
+	// ignore loaded constellations that have already been solved and sort the
+	// remaining ones by their estimated cost, most expensive first
+	var unsolvedConstellations = new ArrayList<Constellation>();
+	for (Constellation c : constellations)
+	    if (c.getSolutions() < 0)
+		unsolvedConstellations.add(c);
+	if (costOrdering)
+	    sortByCost(getN(), unsolvedConstellations, threadCount);
+
+	queuedConstellations.set(unsolvedConstellations.size());
+	remainingConstellations.set(unsolvedConstellations.size());
+
+	// build the completion table (only once per depth)
+	completionDepth = CompletionTable.depth(completionTableMemory);
+	if (completionDepth > 0)
+	    CompletionTable.get(completionDepth);
+
+	// compile the engine for this board size (only once per n)
+	generatedEngines = engine == Engine.GENERATED && isGeneratedEngineAvailable()
+		? CpuEngineCompiler.get(getN())
+		: null;
+
+	synchronized (workers) {
+	    // split starting constellations in [threadcount] queues (splitting the work for
+	    // the threads)
+	    // each queue starts with its most expensive constellation, while stolen ones
+	    // are taken from the cheap end
+	    for (int i = 0; i < threadCount; i++) {
+		threadConstellations.add(new ConcurrentLinkedDeque<Constellation>());
+		workers.add(new CpuSolverThread(getN(), i));
+	    }
+	    int i = 0;
+	    for (Constellation c : unsolvedConstellations) {
+		threadConstellations.get((i++) % threadCount).add(c);
+	    }
+	    for (var worker : workers)
+		worker.start();
 	}
 
-	// start the threads and wait until they are all finished
-	ExecutorService executor = Executors.newFixedThreadPool(threadCount);
-	for (i = 0; i < threadCount; i++) {
-	    CpuSolverThread cpuSolverThread = new CpuSolverThread(getN(), threadConstellations.get(i));
-	    executor.submit(cpuSolverThread);
-	}
+	// the symmetric solutions are counted while the threads are working
+	final boolean symmetricSolutionsCounted = !countSymmetricSolutions
+		|| uniqueSolutions.countSymmetricSolutions(this::awaitResume, this::isStopping);
 
-	// wait for the threads to finish
-	executor.shutdown();
+	// wait for the threads to finish, including the ones that were started by
+	// setThreadCount() in the meantime
 	try {
-	    if (executor.awaitTermination(365, TimeUnit.DAYS)) {
-		// finished
-		duration = System.currentTimeMillis() - start + storedDuration;
+	    for (int i = 0;; i++) {
+		CpuSolverThread worker;
+		synchronized (workers) {
+		    if (i == workers.size()) {
+			workers.clear();
+			break;
+		    }
+		    worker = workers.get(i);
+		}
+		worker.join();
 	    }
+	    // finished or canceled
+	    duration = System.currentTimeMillis() - start + storedDuration - getPausedDuration();
 	} catch (InterruptedException e) {
 	    throw new RuntimeException("could not wait for solver cpu threads to terminate: " + e.getMessage(), e);
+	} finally {
+	    journal = null;
+	}
+	final Throwable failure = workerFailure.get();
+	if (failure != null)
+	    throw new RuntimeException("could not solve constellation: " + failure.getMessage(), failure);
+	if (isCancelRequested() && (remainingConstellations.get() > 0 || !symmetricSolutionsCounted)) {
+	    // keep the solved constellations like a loaded state, so that the next start
+	    // continues with the unsolved ones (the symmetric solutions are counted again)
+	    storedDuration = duration;
+	    countSolvedConstellations();
+	    stateLoaded = true;
+	    throw new CancellationException("cpu solver was canceled");
 	}
 	stateLoaded = false;
     }
 
-    private record CpuSolverProgressState(int n, long storedDuration, List<Constellation> constellations) {
+    // true after cancel() or when a thread has failed
+    private boolean isStopping() {
+	return isCancelRequested() || workerFailure.get() != null;
     }
 
-    // worker thread
-    class CpuSolverThread extends Thread {
-
-	private final int n, n3, n4, L, L3, L4; // boardsize
-	private long tempcounter = 0; // tempcounter is #(unique solutions) of current start constellation,
-	// solvecounter is #(all solutions)
-
-	// mark1 and mark2 mark the lines k-1 and l-1 (not necessarily in this order),
-	// because in from this line we will directly shift everything to the next free
-	// row
-	// endmark marks the row of the last free row
-	// jmark marks the row j+1, where the diagonal jr from j has to be set
-	private int mark1, mark2, endmark, jmark;
-
-	// list of uncalculated starting positions, their indices
-	private List<Constellation> constellations;
-
-	CpuSolverThread(int n, List<Constellation> constellations) {
-	    this.n = n;
-	    n3 = n - 3;
-	    n4 = n - 4;
-	    L = 1 << (n - 1);
-	    L3 = 1 << n3;
-	    L4 = 1 << n4;
-	    this.constellations = constellations;
-	}
-
-	// Recursive functions for Placing the Queens
-
-	// IMPORTANT: since the left and right col are occupied by the
-	// startConstalletaion, we only deal
-	// with the bits in between,
-	// hence n-2 bits for a board of size n
-	// the functions recursively call themselves and travel through the board
-	// row-wise
-	// the occupancy of each row is represented with integers in binary
-	// representation (1 occupied,
-	// 0 free)
-	// there are different recursive functions for different arrangements of the
-	// queens i,j,k,l on
-	// the border
-	// in order to reduce the amount of different cases we rotate and mirror the
-	// board in such a
-	// way,
-	// that the queen j in the last row is as close to the right corner as possible
-	// this is done by the function jasmin (j as min)
-	// we call this distance to the corner d and distinguish between d=0,d=1,d=2,d
-	// <small enough>
-	// and d <big>
-	// for d <small enough> the diagonal jl from queen j going upwards to the left
-	// can already be
-	// set
-	// in the first row of the start constellation
-	// for d <big> we have to explicitly set occupy this diagonal in some row before
-	// we can continue
-
-	// NOTATION:
-	// SQ stands for SetQueens and is the prefix of any of the following solver
-	// functions
-	// B stand for block and describes a block of free rows, where nothing special
-	// has to be done
-	// Blocks B are separated by the rows k and l for d<=2
-	// and additionally by row jr for d <small enough> and additionally by row jl
-	// for d <big>
-	// jl is always first and jr is always last, k and l are in between in no fixed
-	// order
-	// (the last fact is a consequence of jasmin)
-
-	// in the last function of every case, respectively, we check check in both next
-	// rows, if there
-	// are free spaces in the row
-
-	// of course, when traveling over row k or l or both or jl or jr, we have to
-	// shift ld and rd by
-	// 2 or 3 rows at once
-	// after skipping these rows we have to occupy the corresponding diagonals
-
-	// for d = 0
-	private void SQd0B(int ld, int rd, int col, int row, int free) {
-	    if (row == endmark) {
-		tempcounter++;
-		return;
-	    }
-
-	    int bit;
-	    int nextfree;
-
-	    while (free > 0) {
-		bit = free & (-free);
-		free -= bit;
-
-		int next_ld = ((ld | bit) << 1);
-		int next_rd = ((rd | bit) >> 1);
-		int next_col = (col | bit);
-		nextfree = ~(next_ld | next_rd | next_col);
-		if (nextfree > 0)
-		    if (row < endmark - 1) {
-			if (~((next_ld << 1) | (next_rd >> 1) | (next_col)) > 0)
-			    SQd0B(next_ld, next_rd, next_col, row + 1, nextfree);
-		    } else {
-			SQd0B(next_ld, next_rd, next_col, row + 1, nextfree);
-		    }
-	    }
+    // starts new threads or retires running ones until [threadCount] threads are
+    // active, the caller must hold the lock of workers
+    private void resizeWorkers() {
+	var activeWorkers = new ArrayList<CpuSolverThread>();
+	for (var worker : workers)
+	    if (worker.isActive())
+		activeWorkers.add(worker);
+
+	var newWorkers = new ArrayList<CpuSolverThread>();
+	while (activeWorkers.size() < threadCount) {
+	    threadConstellations.add(new ConcurrentLinkedDeque<Constellation>());
+	    var worker = new CpuSolverThread(getN(), threadConstellations.size() - 1);
+	    activeWorkers.add(worker);
+	    newWorkers.add(worker);
+	    workers.add(worker);
 	}
+	// retired threads finish the constellation they are solving and then terminate
+	while (activeWorkers.size() > threadCount)
+	    activeWorkers.remove(activeWorkers.size() - 1).retire();
+
+	// without work stealing, the new threads would have nothing to do, so the
+	// queued constellations are spread over all active threads
+	redistributeConstellations(activeWorkers, !workStealing);
+	for (var worker : newWorkers)
+	    worker.start();
+    }
 
-	private void SQd0BkB(int ld, int rd, int col, int row, int free) {
-	    int bit;
-	    int nextfree;
-
-	    if (row == mark1) {
-		while (free > 0) {
-		    bit = free & (-free);
-		    free -= bit;
-		    nextfree = ~(((ld | bit) << 2) | ((rd | bit) >> 2) | (col | bit) | L3);
-		    if (nextfree > 0)
-			SQd0B((ld | bit) << 2, ((rd | bit) >> 2) | L3, col | bit, row + 2, nextfree);
+    // moves the constellations from the queues of the threads that are no longer
+    // active (or from all queues) to the queues of the active threads
+    // the caller must hold the lock of workers
+    private void redistributeConstellations(List<CpuSolverThread> activeWorkers, boolean all) {
+	if (activeWorkers.isEmpty())
+	    return;
+	var queues = new ArrayList<Deque<Constellation>>();
+	for (var worker : workers)
+	    if (all || !worker.isActive())
+		queues.add(threadConstellations.get(worker.queueIdx));
+
+	// take the constellations alternately from the fronts of the queues, so that
+	// the most expensive ones are still at the fronts afterwards
+	var constellations = new ArrayList<Constellation>();
+	boolean empty = false;
+	while (!empty) {
+	    empty = true;
+	    for (var queue : queues) {
+		var c = queue.pollFirst();
+		if (c != null) {
+		    constellations.add(c);
+		    empty = false;
 		}
-		return;
-	    }
-
-	    while (free > 0) {
-		bit = free & (-free);
-		free -= bit;
-		nextfree = ~(((ld | bit) << 1) | ((rd | bit) >> 1) | (col | bit));
-		if (nextfree > 0)
-		    SQd0BkB((ld | bit) << 1, (rd | bit) >> 1, col | bit, row + 1, nextfree);
 	    }
 	}
+	int i = 0;
+	for (var c : constellations)
+	    threadConstellations.get(activeWorkers.get((i++) % activeWorkers.size()).queueIdx).addLast(c);
+    }
 
-	// for d = 1
-	private void SQd1BklB(int ld, int rd, int col, int row, int free) {
-	    int bit;
-	    int nextfree;
-
-	    if (row == mark1) {
-		while (free > 0) {
-		    bit = free & (-free);
-		    free -= bit;
-		    nextfree = ~(((ld | bit) << 3) | ((rd | bit) >> 3) | (col | bit) | 1 | L4);
-		    if (nextfree > 0)
-			SQd1B(((ld | bit) << 3) | 1, ((rd | bit) >> 3) | L4, col | bit, row + 3, nextfree);
-		}
-		return;
-	    }
-
-	    while (free > 0) {
-		bit = free & (-free);
-		free -= bit;
-		nextfree = ~(((ld | bit) << 1) | ((rd | bit) >> 1) | (col | bit));
-		if (nextfree > 0)
-		    SQd1BklB((ld | bit) << 1, (rd | bit) >> 1, col | bit, row + 1, nextfree);
-	    }
+    // called by the threads whenever a constellation or sub constellation is solved
+    private void constellationSolved(Constellation constellation, long constellationSolutions) {
+	var split = splitConstellations.remove(constellation);
+	if (split == null) {
+	    constellation.setSolutions(constellationSolutions);
+	    progressCounter.add(constellationSolutions);
+	    uniqueSolutions.add(constellationSolutions);
+	    journal.add(constellation, constellationSolutions);
+	    fireConstellationSolved(constellation, constellationSolutions);
+	    return;
 	}
+	// the parent is solved as soon as its last sub constellation is solved
+	split.solutions().addAndGet(constellationSolutions);
+	if (split.remaining().decrementAndGet() == 0)
+	    constellationSolved(split.parent(), split.solutions().get());
+    }
 
-	private void SQd1B(int ld, int rd, int col, int row, int free) {
-	    if (row == endmark) {
-		tempcounter++;
-		return;
-	    }
-
-	    int bit;
-	    int nextfree;
-
-	    while (free > 0) {
-		bit = free & (-free);
-		free -= bit;
-
-		int next_ld = ((ld | bit) << 1);
-		int next_rd = ((rd | bit) >> 1);
-		int next_col = (col | bit);
-		nextfree = ~(next_ld | next_rd | next_col);
-		if (nextfree > 0)
-		    if (row + 1 < endmark) {
-			if (~((next_ld << 1) | (next_rd >> 1) | (next_col)) > 0)
-			    SQd1B(next_ld, next_rd, next_col, row + 1, nextfree);
-		    } else {
-			SQd1B(next_ld, next_rd, next_col, row + 1, nextfree);
-		    }
-	    }
-	}
-
-	private void SQd1BkBlB(int ld, int rd, int col, int row, int free) {
-	    int bit;
-	    int nextfree;
-
-	    if (row == mark1) {
-		while (free > 0) {
-		    bit = free & (-free);
-		    free -= bit;
-		    nextfree = ~(((ld | bit) << 2) | ((rd | bit) >> 2) | (col | bit) | L3);
-		    if (nextfree > 0)
-			SQd1BlB(((ld | bit) << 2), ((rd | bit) >> 2) | L3, col | bit, row + 2, nextfree);
-		}
-		return;
-	    }
-
-	    while (free > 0) {
-		bit = free & (-free);
-		free -= bit;
-		nextfree = ~(((ld | bit) << 1) | ((rd | bit) >> 1) | (col | bit));
-		if (nextfree > 0)
-		    SQd1BkBlB((ld | bit) << 1, (rd | bit) >> 1, col | bit, row + 1, nextfree);
-	    }
-	}
+    /**
+     * The algorithms that can be used by the {@link CpuSolver} to solve a
+     * constellation.
+     */
+    public enum Engine {
+	/**
+	 * Backtracking with one recursive function for each arrangement of the queens
+	 * i, j, k and l on the border of the board (default).
+	 */
+	RECURSIVE,
+	/**
+	 * Backtracking with an explicit stack and per row tables for the special rows of
+	 * a constellation, without method calls per placed queen.
+	 */
+	ITERATIVE,
+	/**
+	 * Backtracking like in the kernel of the {@link GpuSolver}: the queens j, k and l
+	 * are part of a row mask table that is built once per jkl, so that all
+	 * constellations are solved by the same simple loop over all rows.
+	 */
+	JKL_MASKS,
+	/**
+	 * Like {@link #JKL_MASKS}, but each thread solves multiple constellations at
+	 * once in lock-step, one in each lane of a SIMD vector (Java Vector API). Needs
+	 * the JVM option {@code --add-modules jdk.incubator.vector}, otherwise
+	 * {@link #JKL_MASKS} is used instead.
+	 * 
+	 * @see CpuSolver#isVectorEngineAvailable()
+	 * @see CpuSolver#getLaneUtilization()
+	 */
+	VECTOR,
+	/**
+	 * Same algorithm as {@link #RECURSIVE}, but compiled at runtime for the board
+	 * size of the solver, so that all values that only depend on the board size are
+	 * constants. The class is compiled once per board size and cached. Needs a Java
+	 * compiler at runtime, otherwise {@link #RECURSIVE} is used instead.
+	 * 
+	 * @see CpuSolver#isGeneratedEngineAvailable()
+	 */
+	GENERATED
+    }
 
-	private void SQd1BlB(int ld, int rd, int col, int row, int free) {
-	    int bit;
-	    int nextfree;
-
-	    if (row == mark2) {
-		while (free > 0) {
-		    bit = free & (-free);
-		    free -= bit;
-
-		    int next_ld = ((ld | bit) << 2) | 1;
-		    int next_rd = ((rd | bit) >> 2);
-		    int next_col = (col | bit);
-		    nextfree = ~(next_ld | next_rd | next_col);
-		    if (nextfree > 0)
-			if (row + 2 < endmark) {
-			    if (~((next_ld << 1) | (next_rd >> 1) | (next_col)) > 0)
-				SQd1B(next_ld, next_rd, next_col, row + 2, nextfree);
-			} else {
-			    SQd1B(next_ld, next_rd, next_col, row + 2, nextfree);
-			}
-		}
-		return;
-	    }
+    private record CpuSolverProgressState(int n, long storedDuration, List<Constellation> constellations) {
+    }
 
-	    while (free > 0) {
-		bit = free & (-free);
-		free -= bit;
-		nextfree = ~(((ld | bit) << 1) | ((rd | bit) >> 1) | (col | bit));
-		if (nextfree > 0)
-		    SQd1BlB((ld | bit) << 1, (rd | bit) >> 1, col | bit, row + 1, nextfree);
-	    }
-	}
+    /**
+     * A consistent snapshot of the progress of a {@link CpuSolver}.
+     * 
+     * @param n              the board size.
+     * @param duration       the duration in milliseconds at the moment of the
+     *                       checkpoint.
+     * @param solutions      the number of solutions of all solved constellations
+     *                       of the checkpoint.
+     * @param constellations copies of all constellations, unsolved ones have -1
+     *                       solutions.
+     * @see CpuSolver#getCheckpoint()
+     */
+    public record Checkpoint(int n, long duration, long solutions, List<Constellation> constellations) {
+    }
 
-	private void SQd1BlkB(int ld, int rd, int col, int row, int free) {
-	    int bit;
-	    int nextfree;
-
-	    if (row == mark1) {
-		while (free > 0) {
-		    bit = free & (-free);
-		    free -= bit;
-		    nextfree = ~(((ld | bit) << 3) | ((rd | bit) >> 3) | (col | bit) | 2 | L3);
-		    if (nextfree > 0)
-			SQd1B(((ld | bit) << 3) | 2, ((rd | bit) >> 3) | L3, col | bit, row + 3, nextfree);
-		}
-		return;
-	    }
+    /**
+     * The result of {@link CpuSolver#estimate(int)}.
+     * 
+     * @param solutions     the estimated number of solutions.
+     * @param solutionsLow  the lower bound of the 95% confidence interval of the
+     *                      solutions.
+     * @param solutionsHigh the upper bound of the 95% confidence interval of the
+     *                      solutions.
+     * @param nodes         the estimated number of nodes of the search tree.
+     * @param duration      the projected duration in milliseconds.
+     * @param durationLow   the lower bound of the 95% confidence interval of the
+     *                      duration.
+     * @param durationHigh  the upper bound of the 95% confidence interval of the
+     *                      duration.
+     */
+    public record Estimate(double solutions, double solutionsLow, double solutionsHigh, double nodes, long duration,
+	    long durationLow, long durationHigh) {
+    }
 
-	    while (free > 0) {
-		bit = free & (-free);
-		free -= bit;
-		nextfree = ~(((ld | bit) << 1) | ((rd | bit) >> 1) | (col | bit));
-		if (nextfree > 0)
-		    SQd1BlkB((ld | bit) << 1, (rd | bit) >> 1, col | bit, row + 1, nextfree);
+    // the results of the constellations of a run, each one stamped with a sequence
+    // number when it is published, so that a checkpoint can take all results up to a
+    // certain sequence number without locking
+    // stamps are -1 for unsolved constellations and 0 for constellations that were
+    // already solved when the run started
+    private static class ResultJournal {
+	private final List<Constellation> constellations;
+	private final Map<Constellation, Integer> indices = new HashMap<Constellation, Integer>();
+	private final long[] results;
+	private final AtomicLongArray stamps;
+	private final AtomicLong sequence = new AtomicLong(0);
+
+	ResultJournal(List<Constellation> constellations) {
+	    this.constellations = constellations;
+	    results = new long[constellations.size()];
+	    stamps = new AtomicLongArray(constellations.size());
+	    for (int i = 0; i < constellations.size(); i++) {
+		var c = constellations.get(i);
+		indices.put(c, i);
+		results[i] = c.getSolutions();
+		stamps.set(i, c.getSolutions() >= 0 ? 0 : -1);
 	    }
 	}
 
-	private void SQd1BlBkB(int ld, int rd, int col, int row, int free) {
-	    int bit;
-	    int nextfree;
-
-	    if (row == mark1) {
-		while (free > 0) {
-		    bit = free & (-free);
-		    free -= bit;
-		    nextfree = ~(((ld | bit) << 2) | ((rd | bit) >> 2) | (col | bit) | 1);
-		    if (nextfree > 0)
-			SQd1BkB(((ld | bit) << 2) | 1, (rd | bit) >> 2, col | bit, row + 2, nextfree);
-		}
-		return;
-	    }
-
-	    while (free > 0) {
-		bit = free & (-free);
-		free -= bit;
-		nextfree = ~(((ld | bit) << 1) | ((rd | bit) >> 1) | (col | bit));
-		if (nextfree > 0)
-		    SQd1BlBkB((ld | bit) << 1, (rd | bit) >> 1, col | bit, row + 1, nextfree);
-	    }
+	// the result is written before the stamp, so a checkpoint that sees the stamp
+	// also sees the result
+	void add(Constellation constellation, long solutions) {
+	    final int i = indices.get(constellation);
+	    results[i] = solutions;
+	    stamps.set(i, sequence.incrementAndGet());
 	}
+    }
 
-	private void SQd1BkB(int ld, int rd, int col, int row, int free) {
-	    int bit;
-	    int nextfree;
-
-	    if (row == mark2) {
-		while (free > 0) {
-		    bit = free & (-free);
-		    free -= bit;
-		    nextfree = ~(((ld | bit) << 2) | ((rd | bit) >> 2) | (col | bit) | L3);
-		    if (nextfree > 0)
-			SQd1B(((ld | bit) << 2), ((rd | bit) >> 2) | L3, col | bit, row + 2, nextfree);
-		}
-		return;
-	    }
-
-	    while (free > 0) {
-		bit = free & (-free);
-		free -= bit;
-		nextfree = ~(((ld | bit) << 1) | ((rd | bit) >> 1) | (col | bit));
-		if (nextfree > 0)
-		    SQd1BkB((ld | bit) << 1, (rd | bit) >> 1, col | bit, row + 1, nextfree);
-	    }
-	}
+    // a constellation that was split into sub constellations at runtime
+    private record SplitConstellation(Constellation parent, AtomicInteger remaining, AtomicLong solutions) {
+    }
 
-	// for d = 2
-	private void SQd2BlkB(int ld, int rd, int col, int row, int free) {
-	    int bit;
-	    int nextfree;
-
-	    if (row == mark1) {
-		while (free > 0) {
-		    bit = free & (-free);
-		    free -= bit;
-		    nextfree = ~(((ld | bit) << 3) | ((rd | bit) >> 3) | (col | bit) | L3 | 2);
-		    if (nextfree > 0)
-			SQd2B(((ld | bit) << 3) | 2, ((rd | bit) >> 3) | L3, col | bit, row + 3, nextfree);
-		}
-		return;
-	    }
+    // worker thread
+    class CpuSolverThread extends Thread {
 
-	    while (free > 0) {
-		bit = free & (-free);
-		free -= bit;
-		nextfree = ~(((ld | bit) << 1) | ((rd | bit) >> 1) | (col | bit));
-		if (nextfree > 0)
-		    SQd2BlkB((ld | bit) << 1, (rd | bit) >> 1, col | bit, row + 1, nextfree);
-	    }
-	}
+	private final int n, L; // boardsize
 
-	private void SQd2BklB(int ld, int rd, int col, int row, int free) {
-	    int bit;
-	    int nextfree;
-
-	    if (row == mark1) {
-		while (free > 0) {
-		    bit = free & (-free);
-		    free -= bit;
-		    nextfree = ~(((ld | bit) << 3) | ((rd | bit) >> 3) | (col | bit) | L4 | 1);
-		    if (nextfree > 0)
-			SQd2B(((ld | bit) << 3) | 1, ((rd | bit) >> 3) | L4, col | bit, row + 3, nextfree);
-		}
-		return;
-	    }
+	// index of this thread's own queue of uncalculated starting constellations
+	private final int queueIdx;
+	// set by setThreadCount() if this thread should terminate
+	private volatile boolean retired;
+	// set when this thread has nothing more to do
+	private volatile boolean terminated;
 
-	    while (free > 0) {
-		bit = free & (-free);
-		free -= bit;
-		nextfree = ~(((ld | bit) << 1) | ((rd | bit) >> 1) | (col | bit));
-		if (nextfree > 0)
-		    SQd2BklB((ld | bit) << 1, (rd | bit) >> 1, col | bit, row + 1, nextfree);
-	    }
-	}
+	private final IterativeCpuEngine iterativeEngine;
+	private final JklMaskCpuEngine jklMaskEngine;
+	private final VectorCpuEngine vectorEngine;
+	// the RecursiveCpuEngine or its N-specialised copy (GENERATED), see
+	// RecursiveCpuEngine.applyAsLong() for the arguments
+	private final ToLongFunction<int[]> recursiveEngine;
+	private final int[] recursiveEngineArgs = new int[9];
 
-	private void SQd2BlBkB(int ld, int rd, int col, int row, int free) {
-	    int bit;
-	    int nextfree;
-
-	    if (row == mark1) {
-		while (free > 0) {
-		    bit = free & (-free);
-		    free -= bit;
-		    nextfree = ~(((ld | bit) << 2) | ((rd | bit) >> 2) | (col | bit) | 1);
-		    if (nextfree > 0)
-			SQd2BkB(((ld | bit) << 2) | 1, (rd | bit) >> 2, col | bit, row + 2, nextfree);
-		}
-		return;
-	    }
+	// used by the recursive engine, null if there is no table
+	private final TranspositionTable transpositionTable;
 
-	    while (free > 0) {
-		bit = free & (-free);
-		free -= bit;
-		nextfree = ~(((ld | bit) << 1) | ((rd | bit) >> 1) | (col | bit));
-		if (nextfree > 0)
-		    SQd2BlBkB((ld | bit) << 1, (rd | bit) >> 1, col | bit, row + 1, nextfree);
+	CpuSolverThread(int n, int queueIdx) {
+	    this.n = n;
+	    L = 1 << (n - 1);
+	    this.queueIdx = queueIdx;
+	    final BooleanSupplier aborted = CpuSolver.this::isStopping;
+	    iterativeEngine = engine == Engine.ITERATIVE ? new IterativeCpuEngine(n, aborted) : null;
+	    vectorEngine = engine == Engine.VECTOR && isVectorEngineAvailable() ? new VectorCpuEngine(n, aborted)
+		    : null;
+	    jklMaskEngine = engine == Engine.JKL_MASKS || (engine == Engine.VECTOR && vectorEngine == null)
+		    ? new JklMaskCpuEngine(n, aborted)
+		    : null;
+	    transpositionTable = transpositionTableMemory > 0
+		    ? new TranspositionTable(n, transpositionTableMemory / threadCount)
+		    : null;
+	    if (iterativeEngine == null && vectorEngine == null && jklMaskEngine == null) {
+		final CpuEngineCompiler.Factory factory = generatedEngines != null ? generatedEngines
+			: RecursiveCpuEngine::new;
+		recursiveEngine = factory.create(n, completionDepth > 0 ? CompletionTable.get(completionDepth) : null,
+			completionDepth - 1, transpositionTable, transpositionTable != null ? transpositionTableRows : 0,
+			aborted);
+	    } else {
+		recursiveEngine = null;
 	    }
 	}
 
-	private void SQd2BkBlB(int ld, int rd, int col, int row, int free) {
-	    int bit;
-	    int nextfree;
-
-	    if (row == mark1) {
-		while (free > 0) {
-		    bit = free & (-free);
-		    free -= bit;
-		    nextfree = ~(((ld | bit) << 2) | ((rd | bit) >> 2) | (col | bit) | (1 << (n3)));
-		    if (nextfree > 0)
-			SQd2BlB(((ld | bit) << 2), ((rd | bit) >> 2) | (1 << (n3)), col | bit, row + 2, nextfree);
-		}
-		return;
-	    }
-
-	    while (free > 0) {
-		bit = free & (-free);
-		free -= bit;
-		nextfree = ~(((ld | bit) << 1) | ((rd | bit) >> 1) | (col | bit));
-		if (nextfree > 0)
-		    SQd2BkBlB((ld | bit) << 1, (rd | bit) >> 1, col | bit, row + 1, nextfree);
+	// take the next constellation from the front of the own queue or, if it is
+	// empty and work stealing is enabled, from the back of another thread's queue
+	// while the solver is paused, the thread waits here
+	private Constellation nextConstellation() {
+	    if (!awaitResume() || retired || isStopping())
+		return null;
+	    var constellation = threadConstellations.get(queueIdx).pollFirst();
+	    if (constellation == null && workStealing) {
+		final int queues = threadConstellations.size();
+		for (int i = 1; i < queues && constellation == null; i++)
+		    constellation = threadConstellations.get((queueIdx + i) % queues).pollLast();
 	    }
+	    if (constellation != null)
+		queuedConstellations.decrementAndGet();
+	    return constellation;
 	}
 
-	private void SQd2BlB(int ld, int rd, int col, int row, int free) {
-	    int bit;
-	    int nextfree;
-
-	    if (row == mark2) {
-		while (free > 0) {
-		    bit = free & (-free);
-		    free -= bit;
-		    nextfree = ~(((ld | bit) << 2) | ((rd | bit) >> 2) | (col | bit) | 1);
-		    if (nextfree > 0)
-			SQd2B(((ld | bit) << 2) | 1, (rd | bit) >> 2, col | bit, row + 2, nextfree);
-		}
-		return;
-	    }
-
-	    while (free > 0) {
-		bit = free & (-free);
-		free -= bit;
-		nextfree = ~(((ld | bit) << 1) | ((rd | bit) >> 1) | (col | bit));
-		if (nextfree > 0)
-		    SQd2BlB((ld | bit) << 1, (rd | bit) >> 1, col | bit, row + 1, nextfree);
-	    }
+	boolean isActive() {
+	    return !retired && !terminated;
 	}
 
-	private void SQd2BkB(int ld, int rd, int col, int row, int free) {
-	    int bit;
-	    int nextfree;
-
-	    if (row == mark2) {
-		while (free > 0) {
-		    bit = free & (-free);
-		    free -= bit;
-		    nextfree = ~(((ld | bit) << 2) | ((rd | bit) >> 2) | (col | bit) | L3);
-		    if (nextfree > 0)
-			SQd2B(((ld | bit) << 2), ((rd | bit) >> 2) | L3, col | bit, row + 2, nextfree);
-		}
-		return;
-	    }
-
-	    while (free > 0) {
-		bit = free & (-free);
-		free -= bit;
-		nextfree = ~(((ld | bit) << 1) | ((rd | bit) >> 1) | (col | bit));
-		if (nextfree > 0)
-		    SQd2BkB((ld | bit) << 1, (rd | bit) >> 1, col | bit, row + 1, nextfree);
-	    }
+	void retire() {
+	    retired = true;
 	}
 
-	private void SQd2B(int ld, int rd, int col, int row, int free) {
-	    if (row == endmark) {
-		if ((free & (~1)) > 0)
-		    tempcounter++;
-		return;
-	    }
-
-	    int bit;
-	    int nextfree;
-
-	    while (free > 0) {
-		bit = free & (-free);
-		free -= bit;
-
-		int next_ld = ((ld | bit) << 1);
-		int next_rd = ((rd | bit) >> 1);
-		int next_col = (col | bit);
-		nextfree = ~(next_ld | next_rd | next_col);
-		if (nextfree > 0)
-		    if (row < endmark - 1) {
-			if (~((next_ld << 1) | (next_rd >> 1) | (next_col)) > 0)
-			    SQd2B(next_ld, next_rd, next_col, row + 1, nextfree);
-		    } else {
-			SQd2B(next_ld, next_rd, next_col, row + 1, nextfree);
-		    }
+	// called when there is no constellation left for this thread
+	// setThreadCount() might be moving constellations between the queues at the
+	// same time, so check again while holding the lock
+	// returns false if the thread got new constellations
+	// after cancel() or a failure, the queued constellations are left unsolved
+	private boolean terminate() {
+	    synchronized (workers) {
+		final boolean stopping = retired || isStopping();
+		if (!stopping && !threadConstellations.get(queueIdx).isEmpty())
+		    return false;
+		if (!stopping && workStealing)
+		    for (var queue : threadConstellations)
+			if (!queue.isEmpty())
+			    return false;
+		terminated = true;
+		// hand over the constellations that were added to the queue of this thread
+		// after it was retired (e.g. by splitting)
+		var activeWorkers = new ArrayList<CpuSolverThread>();
+		for (var worker : workers)
+		    if (worker.isActive())
+			activeWorkers.add(worker);
+		redistributeConstellations(activeWorkers, false);
+		return true;
 	    }
 	}
 
-	// for d>2 but d <small enough>
-	private void SQBkBlBjrB(int ld, int rd, int col, int row, int free) {
-	    int bit;
-	    int nextfree;
-
-	    if (row == mark1) {
-		while (free > 0) {
-		    bit = free & (-free);
-		    free -= bit;
-		    nextfree = ~(((ld | bit) << 2) | ((rd | bit) >> 2) | (col | bit) | (1 << (n3)));
-		    if (nextfree > 0)
-			SQBlBjrB(((ld | bit) << 2), ((rd | bit) >> 2) | (1 << (n3)), col | bit, row + 2, nextfree);
-		}
-		return;
-	    }
-
-	    while (free > 0) {
-		bit = free & (-free);
-		free -= bit;
-		nextfree = ~(((ld | bit) << 1) | ((rd | bit) >> 1) | (col | bit));
-		if (nextfree > 0)
-		    SQBkBlBjrB((ld | bit) << 1, (rd | bit) >> 1, col | bit, row + 1, nextfree);
-	    }
+	// like nextConstellation(), but constellations that are split are replaced by
+	// the next one
+	private Constellation nextUnsplitConstellation() {
+	    var constellation = nextConstellation();
+	    while (constellation != null && split(constellation))
+		constellation = nextConstellation();
+	    return constellation;
 	}
 
-	private void SQBlBjrB(int ld, int rd, int col, int row, int free) {
-	    int bit;
-	    int nextfree;
-
-	    if (row == mark2) {
-		while (free > 0) {
-		    bit = free & (-free);
-		    free -= bit;
-		    nextfree = ~(((ld | bit) << 2) | ((rd | bit) >> 2) | (col | bit) | 1);
-		    if (nextfree > 0)
-			SQBjrB(((ld | bit) << 2) | 1, (rd | bit) >> 2, col | bit, row + 2, nextfree);
-		}
-		return;
+	// split the constellation into sub constellations with one more queen placed
+	// and put them to the front of the own queue, so that idle threads can steal
+	// them from the back
+	// returns false if the constellation should rather be solved directly
+	private boolean split(Constellation constellation) {
+	    if (!constellationSplitting || !workStealing || threadCount == 1
+		    || queuedConstellations.get() >= threadCount)
+		return false;
+	    // not worth it if there are only a few rows left
+	    if (constellation.getStart() + 1 >= n - 4)
+		return false;
+
+	    var subConstellations = new ConstellationsGenerator(n).generateSubConstellations(List.of(constellation), 1);
+	    if (subConstellations.isEmpty()) {
+		remainingConstellations.decrementAndGet();
+		constellationSolved(constellation, 0);
+		return true;
 	    }
 
-	    while (free > 0) {
-		bit = free & (-free);
-		free -= bit;
-		nextfree = ~(((ld | bit) << 1) | ((rd | bit) >> 1) | (col | bit));
-		if (nextfree > 0)
-		    SQBlBjrB((ld | bit) << 1, (rd | bit) >> 1, col | bit, row + 1, nextfree);
-	    }
+	    var split = new SplitConstellation(constellation, new AtomicInteger(subConstellations.size()),
+		    new AtomicLong(0));
+	    for (var c : subConstellations)
+		splitConstellations.put(c, split);
+	    remainingConstellations.addAndGet(subConstellations.size() - 1);
+	    queuedConstellations.addAndGet(subConstellations.size());
+	    var queue = threadConstellations.get(queueIdx);
+	    for (int i = subConstellations.size() - 1; i >= 0; i--)
+		queue.addFirst(subConstellations.get(i));
+	    return true;
 	}
 
-	private void SQBjrB(int ld, int rd, int col, int row, int free) {
-	    int bit;
-	    int nextfree;
-
-	    if (row == jmark) {
-		free &= (~1);
-		ld |= 1;
-		while (free > 0) {
-		    bit = free & (-free);
-		    free -= bit;
-		    nextfree = ~(((ld | bit) << 1) | ((rd | bit) >> 1) | (col | bit));
-		    if (nextfree > 0)
-			SQB(((ld | bit) << 1), (rd | bit) >> 1, col | bit, row + 1, nextfree);
-		}
-		return;
-	    }
-
-	    while (free > 0) {
-		bit = free & (-free);
-		free -= bit;
-		nextfree = ~(((ld | bit) << 1) | ((rd | bit) >> 1) | (col | bit));
-		if (nextfree > 0)
-		    SQBjrB((ld | bit) << 1, (rd | bit) >> 1, col | bit, row + 1, nextfree);
+	@Override
+	public void run() {
+	    try {
+		solveConstellations();
+	    } catch (RuntimeException | Error e) {
+		workerFailure.compareAndSet(null, e);
 	    }
 	}
 
-	private void SQB(int ld, int rd, int col, int row, int free) {
-	    if (row == endmark) {
-		tempcounter++;
-		return;
-	    }
+	private void solveConstellations() {
+	    int j, k, l, ijkl, ld, rd, col, startIjkl, start, free, LD;
+	    long solutions;
+	    final int n = this.n;
+	    final int smallmask = (1 << (n - 2)) - 1;
 
-	    int bit;
-	    int nextfree;
-
-	    while (free > 0) {
-		bit = free & (-free);
-		free -= bit;
-
-		int next_ld = ((ld | bit) << 1);
-		int next_rd = ((rd | bit) >> 1);
-		int next_col = (col | bit);
-		nextfree = ~(next_ld | next_rd | next_col);
-		if (nextfree > 0)
-		    if (row < endmark - 1) {
-			if (~((next_ld << 1) | (next_rd >> 1) | (next_col)) > 0)
-			    SQB(next_ld, next_rd, next_col, row + 1, nextfree);
-		    } else {
-			SQB(next_ld, next_rd, next_col, row + 1, nextfree);
+	    Constellation constellation;
+	    while (true) {
+		constellation = nextConstellation();
+		if (constellation == null) {
+		    // other threads might still split their constellations, so wait until all
+		    // of them are solved
+		    if (!retired && !isStopping() && constellationSplitting && workStealing && remainingConstellations.get() > 0) {
+			LockSupport.parkNanos(1_000_000);
+			continue;
 		    }
-	    }
-	}
-
-	private void SQBlBkBjrB(int ld, int rd, int col, int row, int free) {
-	    int bit;
-	    int nextfree;
-
-	    if (row == mark1) {
-		while (free > 0) {
-		    bit = free & (-free);
-		    free -= bit;
-		    nextfree = ~(((ld | bit) << 2) | ((rd | bit) >> 2) | (col | bit) | 1);
-		    if (nextfree > 0)
-			SQBkBjrB(((ld | bit) << 2) | 1, (rd | bit) >> 2, col | bit, row + 2, nextfree);
-		}
-		return;
-	    }
-
-	    while (free > 0) {
-		bit = free & (-free);
-		free -= bit;
-		nextfree = ~(((ld | bit) << 1) | ((rd | bit) >> 1) | (col | bit));
-		if (nextfree > 0)
-		    SQBlBkBjrB((ld | bit) << 1, (rd | bit) >> 1, col | bit, row + 1, nextfree);
-	    }
-	}
-
-	private void SQBkBjrB(int ld, int rd, int col, int row, int free) {
-	    int bit;
-	    int nextfree;
-
-	    if (row == mark2) {
-		while (free > 0) {
-		    bit = free & (-free);
-		    free -= bit;
-		    nextfree = ~(((ld | bit) << 2) | ((rd | bit) >> 2) | (col | bit) | L3);
-		    if (nextfree > 0)
-			SQBjrB(((ld | bit) << 2), ((rd | bit) >> 2) | L3, col | bit, row + 2, nextfree);
+		    if (terminate())
+			break;
+		    continue;
 		}
-		return;
-	    }
-
-	    while (free > 0) {
-		bit = free & (-free);
-		free -= bit;
-		nextfree = ~(((ld | bit) << 1) | ((rd | bit) >> 1) | (col | bit));
-		if (nextfree > 0)
-		    SQBkBjrB((ld | bit) << 1, (rd | bit) >> 1, col | bit, row + 1, nextfree);
-	    }
-	}
-
-	private void SQBklBjrB(int ld, int rd, int col, int row, int free) {
-	    int bit;
-	    int nextfree;
-
-	    if (row == mark1) {
-		while (free > 0) {
-		    bit = free & (-free);
-		    free -= bit;
-		    nextfree = ~(((ld | bit) << 3) | ((rd | bit) >> 3) | (col | bit) | L4 | 1);
-		    if (nextfree > 0)
-			SQBjrB(((ld | bit) << 3) | 1, ((rd | bit) >> 3) | L4, col | bit, row + 3, nextfree);
+		if (split(constellation))
+		    continue;
+
+		// no case distinction needed
+		if (vectorEngine != null) {
+		    long steps = vectorEngine.getSteps(), activeLaneSteps = vectorEngine.getActiveLaneSteps();
+		    vectorEngine.solve(constellation, this::nextUnsplitConstellation, (c, count) -> {
+			remainingConstellations.decrementAndGet();
+			constellationSolved(c, count * symmetry(n, c.getIjkl()));
+		    });
+		    vectorSteps.addAndGet(vectorEngine.getSteps() - steps);
+		    activeVectorLaneSteps.addAndGet(vectorEngine.getActiveLaneSteps() - activeLaneSteps);
+		    continue;
 		}
-		return;
-	    }
-
-	    while (free > 0) {
-		bit = free & (-free);
-		free -= bit;
-		nextfree = ~(((ld | bit) << 1) | ((rd | bit) >> 1) | (col | bit));
-		if (nextfree > 0)
-		    SQBklBjrB((ld | bit) << 1, (rd | bit) >> 1, col | bit, row + 1, nextfree);
-	    }
-	}
-
-	private void SQBlkBjrB(int ld, int rd, int col, int row, int free) {
-	    int bit;
-	    int nextfree;
-
-	    if (row == mark1) {
-		while (free > 0) {
-		    bit = free & (-free);
-		    free -= bit;
-		    nextfree = ~(((ld | bit) << 3) | ((rd | bit) >> 3) | (col | bit) | L3 | 2);
-		    if (nextfree > 0)
-			SQBjrB(((ld | bit) << 3) | 2, ((rd | bit) >> 3) | L3, col | bit, row + 3, nextfree);
+		if (jklMaskEngine != null) {
+		    final long count = jklMaskEngine.count(constellation);
+		    if (isStopping())
+			continue; // aborted, see CONTROL_ROWS
+		    remainingConstellations.decrementAndGet();
+		    constellationSolved(constellation, count * symmetry(n, constellation.getIjkl()));
+		    continue;
 		}
-		return;
-	    }
 
-	    while (free > 0) {
-		bit = free & (-free);
-		free -= bit;
-		nextfree = ~(((ld | bit) << 1) | ((rd | bit) >> 1) | (col | bit));
-		if (nextfree > 0)
-		    SQBlkBjrB((ld | bit) << 1, (rd | bit) >> 1, col | bit, row + 1, nextfree);
-	    }
-	}
-
-	// for d <big>
-	private void SQBjlBkBlBjrB(int ld, int rd, int col, int row, int free) {
-	    if (row == n - 1 - jmark) {
-		rd |= L;
-		free &= ~L;
-		SQBkBlBjrB(ld, rd, col, row, free);
-		return;
-	    }
-
-	    int bit;
-	    int nextfree;
-
-	    while (free > 0) {
-		bit = free & (-free);
-		free -= bit;
-		nextfree = ~(((ld | bit) << 1) | ((rd | bit) >> 1) | (col | bit));
-		if (nextfree > 0)
-		    SQBjlBkBlBjrB((ld | bit) << 1, (rd | bit) >> 1, col | bit, row + 1, nextfree);
-	    }
-	}
-
-	private void SQBjlBlBkBjrB(int ld, int rd, int col, int row, int free) {
-	    if (row == n - 1 - jmark) {
-		rd |= L;
-		free &= ~L;
-		SQBlBkBjrB(ld, rd, col, row, free);
-		return;
-	    }
-
-	    int bit;
-	    int nextfree;
-
-	    while (free > 0) {
-		bit = free & (-free);
-		free -= bit;
-		nextfree = ~(((ld | bit) << 1) | ((rd | bit) >> 1) | (col | bit));
-		if (nextfree > 0)
-		    SQBjlBlBkBjrB((ld | bit) << 1, (rd | bit) >> 1, col | bit, row + 1, nextfree);
-	    }
-	}
-
-	private void SQBjlBklBjrB(int ld, int rd, int col, int row, int free) {
-	    if (row == n - 1 - jmark) {
-		rd |= L;
-		free &= ~L;
-		SQBklBjrB(ld, rd, col, row, free);
-		return;
-	    }
-
-	    int bit;
-	    int nextfree;
-
-	    while (free > 0) {
-		bit = free & (-free);
-		free -= bit;
-		nextfree = ~(((ld | bit) << 1) | ((rd | bit) >> 1) | (col | bit));
-		if (nextfree > 0)
-		    SQBjlBklBjrB((ld | bit) << 1, (rd | bit) >> 1, col | bit, row + 1, nextfree);
-	    }
-	}
-
-	private void SQBjlBlkBjrB(int ld, int rd, int col, int row, int free) {
-	    if (row == n - 1 - jmark) {
-		rd |= L;
-		free &= ~L;
-		SQBlkBjrB(ld, rd, col, row, free);
-		return;
-	    }
-
-	    int bit;
-	    int nextfree;
-
-	    while (free > 0) {
-		bit = free & (-free);
-		free -= bit;
-		nextfree = ~(((ld | bit) << 1) | ((rd | bit) >> 1) | (col | bit));
-		if (nextfree > 0)
-		    SQBjlBlkBjrB((ld | bit) << 1, (rd | bit) >> 1, col | bit, row + 1, nextfree);
-	    }
-	}
-	
-	@Override
-	public void run() {
-	    int j, k, l, ijkl, ld, rd, col, startIjkl, start, free, LD;
-	    final int n = this.n;
-	    final int smallmask = (1 << (n - 2)) - 1;
-
-	    for (Constellation constellation : constellations) {
 		startIjkl = constellation.getStartIjkl();
 		start = startIjkl >> 20;
 		ijkl = startIjkl & ((1 << 20) - 1);
@@ -991,276 +1152,36 @@ public class CpuSolver extends AbstractSolver {
 		col = (constellation.getCol() >>> 1) | (~smallmask);
 		free = ~(ld | rd | col);
 
-		// big case distinction for deciding which soling algorithm to use
-		// it is a miracel that we got this to actually work..
-		// if queen j is more than 2 columns away from the corner
-		if (j < n - 3) {
-		    jmark = j + 1;
-		    endmark = n - 2;
-		    // if the queen j is more than 2 columns away from the corner but the rd from
-		    // the
-		    // j-queen can be set right at start
-		    if (j > 2 * n - 34 - start) {
-			// k < l
-			if (k < l) {
-			    mark1 = k - 1;
-			    mark2 = l - 1;
-			    // if at least l is yet to come
-			    if (start < l) {
-				// if also k is yet to come
-				if (start < k) {
-				    // if there are free rows between k and l
-				    if (l != k + 1) {
-					SQBkBlBjrB(ld, rd, col, start, free);
-				    }
-				    // if there are no free rows between k and l
-				    else {
-					SQBklBjrB(ld, rd, col, start, free);
-				    }
-				}
-				// if k already came before start and only l is left
-				else {
-				    SQBlBjrB(ld, rd, col, start, free);
-				}
-			    }
-			    // if both k and l already came before start
-			    else {
-				SQBjrB(ld, rd, col, start, free);
-			    }
-			}
-			// l < k
-			else {
-			    mark1 = l - 1;
-			    mark2 = k - 1;
-			    // if at least k is yet to come
-			    if (start < k) {
-				// if also l is yet to come
-				if (start < l) {
-				    // if there is at least one free row between l and k
-				    if (k != l + 1) {
-					SQBlBkBjrB(ld, rd, col, start, free);
-				    }
-				    // if there is no free row between l and k
-				    else {
-					SQBlkBjrB(ld, rd, col, start, free);
-				    }
-				}
-				// if l already came and only k is yet to come
-				else {
-				    SQBkBjrB(ld, rd, col, start, free);
-				}
-			    }
-			    // if both l and k already came before start
-			    else {
-				SQBjrB(ld, rd, col, start, free);
-			    }
-			}
-		    }
-		    // if we have to set some queens first in order to reach the row n-1-jmark where
-		    // the
-		    // rd from queen j
-		    // can be set
-		    else {
-			// k < l
-			if (k < l) {
-			    mark1 = k - 1;
-			    mark2 = l - 1;
-			    // there is at least one free row between rows k and l
-			    if (l != k + 1) {
-				SQBjlBkBlBjrB(ld, rd, col, start, free);
-			    }
-			    // if l comes right after k
-			    else {
-				SQBjlBklBjrB(ld, rd, col, start, free);
-			    }
-			}
-			// l < k
-			else {
-			    mark1 = l - 1;
-			    mark2 = k - 1;
-			    // there is at least on efree row between rows l and k
-			    if (k != l + 1) {
-				SQBjlBlBkBjrB(ld, rd, col, start, free);
-			    }
-			    // if k comes right after l
-			    else {
-				SQBjlBlkBjrB(ld, rd, col, start, free);
-			    }
-			}
-		    }
-		}
-		// if the queen j is exactly 2 columns away from the corner
-		else if (j == n - 3) {
-		    // this means that the last row will always be row n-2
-		    endmark = n - 2;
-		    // k < l
-		    if (k < l) {
-			mark1 = k - 1;
-			mark2 = l - 1;
-			// if at least l is yet to come
-			if (start < l) {
-			    // if k is yet to come too
-			    if (start < k) {
-				// if there are free rows between k and l
-				if (l != k + 1) {
-				    SQd2BkBlB(ld, rd, col, start, free);
-				} else {
-				    SQd2BklB(ld, rd, col, start, free);
-				}
-			    }
-			    // if k was set before start
-			    else {
-				mark2 = l - 1;
-				SQd2BlB(ld, rd, col, start, free);
-			    }
-			}
-			// if k and l already came before start
-			else {
-			    SQd2B(ld, rd, col, start, free);
-			}
-		    }
-		    // l < k
-		    else {
-			mark1 = l - 1;
-			mark2 = k - 1;
-			endmark = n - 2;
-			// if at least k is yet to come
-			if (start < k) {
-			    // if also l is yet to come
-			    if (start < l) {
-				// if there are free rows between l and k
-				if (k != l + 1) {
-				    SQd2BlBkB(ld, rd, col, start, free);
-				}
-				// if there are no free rows between l and k
-				else {
-				    SQd2BlkB(ld, rd, col, start, free);
-				}
-			    }
-			    // if l came before start
-			    else {
-				mark2 = k - 1;
-				SQd2BkB(ld, rd, col, start, free);
-			    }
-			}
-			// if both l and k already came before start
-			else {
-			    SQd2B(ld, rd, col, start, free);
-			}
-		    }
-		}
-		// if the queen j is exactly 1 column away from the corner
-		else if (j == n - 2) {
-		    // k < l
-		    if (k < l) {
-			// k can not be first, l can not be last due to queen placement
-			// thus always end in line n-2
-			endmark = n - 2;
-			// if at least l is yet to come
-			if (start < l) {
-			    // if k is yet to come too
-			    if (start < k) {
-				mark1 = k - 1;
-				// if k and l are next to each other
-				if (l != k + 1) {
-				    mark2 = l - 1;
-				    SQd1BkBlB(ld, rd, col, start, free);
-				}
-				//
-				else {
-				    SQd1BklB(ld, rd, col, start, free);
-				}
-			    }
-			    // if only l is yet to come
-			    else {
-				mark2 = l - 1;
-				SQd1BlB(ld, rd, col, start, free);
-			    }
-			}
-			// if k and l already came
-			else {
-			    SQd1B(ld, rd, col, start, free);
-			}
-		    }
-		    // l < k
-		    else {
-			// if at least k is yet to come
-			if (start < k) {
-			    // if also l is yet to come
-			    if (start < l) {
-				// if k is not at the end
-				if (k < n - 2) {
-				    mark1 = l - 1;
-				    endmark = n - 2;
-				    // if there are free rows between l and k
-				    if (k != l + 1) {
-					mark2 = k - 1;
-					SQd1BlBkB(ld, rd, col, start, free);
-				    }
-				    // if there are no free rows between l and k
-				    else {
-					SQd1BlkB(ld, rd, col, start, free);
-				    }
-				}
-				// if k is at the end
-				else {
-				    // if l is not right before k
-				    if (l != n - 3) {
-					mark2 = l - 1;
-					endmark = n - 3;
-					SQd1BlB(ld, rd, col, start, free);
-				    }
-				    // if l is right before k
-				    else {
-					endmark = n - 4;
-					SQd1B(ld, rd, col, start, free);
-				    }
-				}
-			    }
-			    // if only k is yet to come
-			    else {
-				// if k is not at the end
-				if (k != n - 2) {
-				    mark2 = k - 1;
-				    endmark = n - 2;
-				    SQd1BkB(ld, rd, col, start, free);
-				} else {
-				    // if k is at the end
-				    endmark = n - 3;
-				    SQd1B(ld, rd, col, start, free);
-				}
-			    }
-			}
-			// k and l came before start
-			else {
-			    endmark = n - 2;
-			    SQd1B(ld, rd, col, start, free);
-			}
-		    }
-		}
-		// if the queen j is placed in the corner
-		else {
-		    endmark = n - 2;
-		    if (start > k) {
-			SQd0B(ld, rd, col, start, free);
-		    }
-		    // k can not be in the last row due to the way we construct start constellations
-		    // with a queen in the corner and
-		    // due to the way we apply jasmin
-		    else {
-			mark1 = k - 1;
-			SQd0BkB(ld, rd, col, start, free);
-		    }
+		if (iterativeEngine != null) {
+		    solutions = iterativeEngine.count(j, k, l, start, ld, rd, col, free);
+		} else {
+		    final int[] args = recursiveEngineArgs;
+		    args[0] = j;
+		    args[1] = k;
+		    args[2] = l;
+		    args[3] = start;
+		    args[4] = ld;
+		    args[5] = rd;
+		    args[6] = col;
+		    args[7] = free;
+		    args[8] = start + CONTROL_ROWS;
+		    solutions = recursiveEngine.applyAsLong(args);
 		}
 
+		if (isStopping())
+		    continue; // aborted, see CONTROL_ROWS
+
 		// for saving and loading progress remove the finished starting constellation
-		var constellationSolutions = tempcounter * symmetry(n, ijkl);
+		var constellationSolutions = solutions * symmetry(n, ijkl);
 		
-		constellation.setSolutions(constellationSolutions);
-		solutions.addAndGet(constellationSolutions);
-		solvedConstellations.incrementAndGet();
-		
-		tempcounter = 0;
+		remainingConstellations.decrementAndGet();
+		constellationSolved(constellation, constellationSolutions);
+
+		if (transpositionTable != null) {
+		    transpositionLookups.addAndGet(transpositionTable.getLookups());
+		    transpositionHits.addAndGet(transpositionTable.getHits());
+		    transpositionTable.resetStatistics();
+		}
 	    }
 	}
     }
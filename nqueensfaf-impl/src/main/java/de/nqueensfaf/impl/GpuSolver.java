@@ -4,9 +4,8 @@ import static de.nqueensfaf.impl.InfoUtil.checkCLError;
 import static de.nqueensfaf.impl.InfoUtil.getDeviceInfoStringUTF8;
 import static de.nqueensfaf.impl.InfoUtil.getProgramBuildInfoStringASCII;
 import static de.nqueensfaf.impl.ConstellationUtils.getJkl;
-import static de.nqueensfaf.impl.ConstellationUtils.getj;
-import static de.nqueensfaf.impl.ConstellationUtils.getk;
-import static de.nqueensfaf.impl.ConstellationUtils.getl;
+import static de.nqueensfaf.impl.ConstellationUtils.jklQueens;
+import static de.nqueensfaf.impl.ConstellationUtils.sortByCost;
 import static de.nqueensfaf.impl.ConstellationUtils.symmetry;
 import static org.lwjgl.opencl.CL12.CL_COMPLETE;
 import static org.lwjgl.opencl.CL12.CL_CONTEXT_PLATFORM;
@@ -58,15 +57,16 @@ import java.nio.IntBuffer;
 import java.nio.LongBuffer;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
@@ -81,22 +81,30 @@ import com.esotericsoftware.kryo.io.Output;
 
 import de.nqueensfaf.core.AbstractSolver;
 import de.nqueensfaf.core.ExecutionState;
+import de.nqueensfaf.core.ProgressSnapshot;
 
 public class GpuSolver extends AbstractSolver {
 
+    // targets of the automatic choice of the preset queens
+    private static final int WORKGROUPS_PER_GPU = 4096;
+    private static final int CONSTELLATION_MEMORY = 192; // host objects and device buffers
+    // a single gpu gets its constellations in this many workloads, so that the
+    // solver can be paused in between
+    private static final int SINGLE_GPU_WORKLOADS = 16;
+
     private List<Gpu> availableGpus;
     private GpuSelection gpuSelection = new GpuSelection();
 
     private List<Constellation> constellations = new ArrayList<Constellation>();
     private int presetQueens = 6;
+    private boolean autoPresetQueens;
+    private long memoryBudget = Runtime.getRuntime().maxMemory() / 2;
 
     private long start, duration, storedDuration;
     private boolean stateLoaded;
 
-    private int L;
-    
-    private final AtomicLong solutions = new AtomicLong(0);
-    private final AtomicInteger solvedConstellations = new AtomicInteger(0);
+    private final ProgressCounter progressCounter = new ProgressCounter(); // solutions and progress
+    private volatile UniqueSolutionsCounter uniqueSolutions = new UniqueSolutionsCounter(0);
 
     private final Kryo kryo = new Kryo();
 
@@ -124,10 +132,63 @@ public class GpuSolver extends AbstractSolver {
 	this.presetQueens = presetQueens;
     }
 
+    /**
+     * Enables or disables the automatic choice of the number of preset queens. If
+     * enabled, {@link #choosePresetQueens()} is called at the start of each run
+     * that does not continue a loaded state.
+     * 
+     * @param autoPresetQueens true to choose the preset queens automatically
+     *                         (default false).
+     */
+    public void setAutoPresetQueens(boolean autoPresetQueens) {
+	this.autoPresetQueens = autoPresetQueens;
+    }
+
+    public boolean isAutoPresetQueens() {
+	return autoPresetQueens;
+    }
+
+    /**
+     * Sets the memory that the constellations may take up. Used by
+     * {@link #choosePresetQueens()} to limit the number of constellations.
+     * 
+     * @param memoryBudget the memory in bytes (default: half of the maximum heap
+     *                     size).
+     */
+    public void setMemoryBudget(long memoryBudget) {
+	if (memoryBudget <= 0)
+	    throw new IllegalArgumentException("invalid value for memory budget: not a number >0");
+	this.memoryBudget = memoryBudget;
+    }
+
+    public long getMemoryBudget() {
+	return memoryBudget;
+    }
+
+    /**
+     * Chooses the number of preset queens for the current board size and GPU
+     * selection and sets it. The smallest number of preset queens is chosen that
+     * results in at least 4096 workgroups per selected GPU, as long as the
+     * constellations fit into the memory budget (about 192 bytes per
+     * constellation).
+     * 
+     * @return the chosen number of preset queens and the number of constellations
+     *         it results in.
+     */
+    public AutoPresetQueens.Choice choosePresetQueens() {
+	long minConstellations = 0;
+	for (var gpu : gpuSelection.get())
+	    minConstellations += (long) WORKGROUPS_PER_GPU * gpu.getConfig().getWorkgroupSize();
+	var choice = AutoPresetQueens.choose(getN(), minConstellations, memoryBudget / CONSTELLATION_MEMORY);
+	presetQueens = choice.presetQueens();
+	return choice;
+    }
+
     @Override
     public void save(String path) throws IOException {
-	if (!getExecutionState().isBusy())
-	    throw new IllegalStateException("progress of CpuSolver can only be saved during the solving process");
+	if (!getExecutionState().isBusy() && !stateLoaded)
+	    throw new IllegalStateException(
+		    "progress of GpuSolver can only be saved during the solving process or after it was canceled");
 
 	try (Output output = new Output(new GZIPOutputStream(new FileOutputStream(path)))) {
 	    kryo.writeObject(output, new GpuSolverProgressState(getN(), getDuration(), constellations));
@@ -157,26 +218,28 @@ public class GpuSolver extends AbstractSolver {
 	setN(n);
 	this.storedDuration = storedDuration;
 	this.constellations = constellations;
-	
-	// update solvedConstellations and solution count
-	solutions.set(0);
-	solvedConstellations.set(0);
+	countSolvedConstellations();
+	stateLoaded = true;
+    }
+
+    // updates the progress and solution count from the solved constellations
+    private void countSolvedConstellations() {
+	progressCounter.reset();
+	uniqueSolutions = new UniqueSolutionsCounter(getN());
 	for (var c : constellations) {
 	    if (c.getStart() == 69) // start=69 is for pseudo constellations
 		continue;
 	    if (c.getSolutions() >= 0) {
-		solutions.addAndGet(c.getSolutions());
-		solvedConstellations.incrementAndGet();
+		progressCounter.add(c.getSolutions());
+		uniqueSolutions.add(c.getSolutions());
 	    }
 	}
-	
-	stateLoaded = true;
     }
 
     @Override
     public void reset() {
-	solutions.set(0);
-	solvedConstellations.set(0);
+	progressCounter.reset();
+	uniqueSolutions = new UniqueSolutionsCounter(getN());
 	duration = start = storedDuration = 0;
 	constellations.clear();
 	stateLoaded = false;
@@ -185,7 +248,7 @@ public class GpuSolver extends AbstractSolver {
     @Override
     public long getDuration() {
 	if (getExecutionState().isBefore(ExecutionState.FINISHED) && start != 0)
-	    return System.currentTimeMillis() - start + storedDuration;
+	    return System.currentTimeMillis() - start + storedDuration - getPausedDuration();
 	else if (start == 0 && stateLoaded)
 	    return storedDuration;
 	return duration;
@@ -195,12 +258,33 @@ public class GpuSolver extends AbstractSolver {
     public float getProgress() {
 	if(constellations.size() == 0)
 	    return 0;
-	return (float) solvedConstellations.get() / constellations.size();
+	return (float) progressCounter.getSolvedConstellations() / constellations.size();
     }
 
     @Override
     public long getSolutions() {
-	return solutions.get();
+	return progressCounter.getSolutions();
+    }
+
+    @Override
+    public ProgressSnapshot getProgressSnapshot() {
+	return progressCounter.snapshot(getDuration(), constellations.size());
+    }
+
+    /**
+     * Returns the number of unique solutions (solutions that can not be transformed
+     * into each other by rotation or reflection) found so far. Like in the
+     * {@link CpuSolver}, it is derived on the host from the solutions of the
+     * constellations, while the results are read from the GPUs, and from the
+     * solutions that are symmetric by rotation, which are counted by the host while
+     * the GPUs are working.
+     * <p>
+     * The number is exact when all constellations of the board are solved.
+     * 
+     * @return the number of unique solutions.
+     */
+    public long getUniqueSolutions() {
+	return uniqueSolutions.getUniqueSolutions();
     }
 
     private void fetchAvailableGpus() {
@@ -257,9 +341,11 @@ public class GpuSolver extends AbstractSolver {
 	start = System.currentTimeMillis();
 	
 	if (!stateLoaded) {
-	    solutions.set(0);
-	    solvedConstellations.set(0);
+	    progressCounter.reset();
+	    uniqueSolutions = new UniqueSolutionsCounter(getN());
 	    storedDuration = 0;
+	    if (autoPresetQueens)
+		choosePresetQueens();
 	    constellations = new ConstellationsGenerator(getN()).generate(presetQueens);
 	} else {
 	    stateLoaded = false;
@@ -267,41 +353,78 @@ public class GpuSolver extends AbstractSolver {
 
 	var remainingConstellations = constellations.stream().filter(c -> c.getSolutions() < 0)
 		.collect(Collectors.toList());
-	if (remainingConstellations.size() == 0)
+	if (remainingConstellations.size() == 0) {
+	    if (!uniqueSolutions.countSymmetricSolutions(this::awaitResume, this::isCancelRequested)) {
+		// only the symmetric solutions are left, they are counted again
+		storedDuration = System.currentTimeMillis() - start + storedDuration - getPausedDuration();
+		countSolvedConstellations();
+		stateLoaded = true;
+		throw new CancellationException("gpu solver was canceled");
+	    }
 	    return; // nothing to do
+	}
+	// sorted only once, the workloads are taken from the sorted list in order
+	sortConstellationsByCost(remainingConstellations);
+
+	// the symmetric solutions are counted by the host while the gpus are working
+	final var symmetricSolutionsCounted = new AtomicBoolean(false);
+	var symmetricSolutionsCounter = new Thread(() -> symmetricSolutionsCounted
+		.set(uniqueSolutions.countSymmetricSolutions(this::awaitResume, this::isCancelRequested)));
+	symmetricSolutionsCounter.start();
 
 	for (var gpu : gpuSelection.get()) {
 	    gpu.setN(getN());
 	    gpu.createOpenClObjects();
 	}
 
-	L = 1 << (getN() - 1);
-
 	if (gpuSelection.get().size() == 1) {
 	    singleGpu(gpuSelection.get().get(0), remainingConstellations);
 	} else {
 	    multiGpu(remainingConstellations);
 	}
 
-	duration = System.currentTimeMillis() - start + storedDuration;
+	try {
+	    symmetricSolutionsCounter.join();
+	} catch (InterruptedException e) {
+	    throw new RuntimeException("could not wait for symmetric solutions to be counted: " + e.getMessage(), e);
+	}
+
+	duration = System.currentTimeMillis() - start + storedDuration - getPausedDuration();
 
 	for (var gpu : gpuSelection.get()) {
 	    gpu.releaseOpenClObjects();
 	    gpu.reset();
 	}
+
+	if (isCancelRequested() && (!symmetricSolutionsCounted.get()
+		|| constellations.stream().anyMatch(c -> c.getSolutions() < 0))) {
+	    // keep the solved constellations like a loaded state, so that the next start
+	    // continues with the unsolved ones (the symmetric solutions are counted again)
+	    storedDuration = duration;
+	    countSolvedConstellations();
+	    stateLoaded = true;
+	    throw new CancellationException("gpu solver was canceled");
+	}
     }
 
     private void singleGpu(Gpu gpu, List<Constellation> constellations) {
-	constellations = new ArrayList<>(
-		fillWithPseudoConstellations(constellations, gpuSelection.get().get(0).getConfig().getWorkgroupSize()));
-
-	gpu.createBuffers(constellations.size());
-	gpu.executeWorkload(constellations);
+	final int workgroupSize = gpu.getConfig().getWorkgroupSize();
+	constellations = new ArrayList<>(fillWithPseudoConstellations(constellations, workgroupSize));
+
+	// each workload consists of whole workgroups and is still big enough to keep
+	// the gpu busy
+	final int workgroups = constellations.size() / workgroupSize;
+	final int workloadSize = Math.max(Math.ceilDiv(workgroups, SINGLE_GPU_WORKLOADS), WORKGROUPS_PER_GPU)
+		* workgroupSize;
+
+	gpu.createBuffers(Math.min(workloadSize, constellations.size()));
+	// while the solver is paused, no new workload is enqueued
+	for (int from = 0; from < constellations.size() && awaitResume(); from += workloadSize)
+	    gpu.executeWorkload(constellations.subList(from, Math.min(from + workloadSize, constellations.size())));
 	gpu.releaseBuffers();
     }
 
     private void multiGpu(List<Constellation> constellations) {
-	sortConstellationsByJkl(constellations);
 	var selectedGpus = gpuSelection.get();
 
 	// calculate workload percentage for each gpu depending on its weight
@@ -362,7 +485,8 @@ public class GpuSolver extends AbstractSolver {
 		do {
 		    gpu.executeWorkload(workload);
 
-		    if (queue.isEmpty())
+		    // while the solver is paused, no new workload is enqueued
+		    if (queue.isEmpty() || !awaitResume())
 			break;
 
 		    workload = new ArrayList<Constellation>(workload.size());
@@ -450,19 +574,26 @@ public class GpuSolver extends AbstractSolver {
 	return resultString;
     }
 
-    private void sortConstellationsByJkl(List<Constellation> constellations) {
-	Collections.sort(constellations, new Comparator<Constellation>() {
-	    @Override
-	    public int compare(Constellation o1, Constellation o2) {
-		return Integer.compare(getJkl(o1.getIjkl()), getJkl(o2.getIjkl()));
-	    }
-	});
+    // most expensive constellations first, but constellations with the same jkl must
+    // stay together because they share the jkl queens array of a workgroup
+    // inside of a jkl group, constellations of similar cost end up in the same
+    // workgroup
+    // the costs are estimated by all available processors, they are idle anyway
+    private void sortConstellationsByCost(List<Constellation> constellations) {
+	final long[] costs = sortByCost(getN(), constellations, Runtime.getRuntime().availableProcessors());
+	var jklCosts = new HashMap<Integer, Long>();
+	for (int i = 0; i < costs.length; i++)
+	    jklCosts.merge(getJkl(constellations.get(i).getIjkl()), costs[i], Long::sum);
+	// the sort is stable, so the constellations of a jkl stay sorted by their cost
+	constellations.sort(Comparator
+		.comparingLong((Constellation c) -> jklCosts.get(getJkl(c.getIjkl()))).reversed()
+		.thenComparingInt(c -> getJkl(c.getIjkl())));
     }
 
+    // the constellations must be sorted by sortConstellationsByCost(), at least
+    // grouped by jkl, otherwise more pseudo constellations are needed
     private ArrayList<Constellation> fillWithPseudoConstellations(List<Constellation> constellations,
 	    int workgroupSize) {
-	sortConstellationsByJkl(constellations);
-
 	ArrayList<Constellation> newConstellations = new ArrayList<Constellation>();
 	int currentJkl = constellations.get(0).getStartIjkl() & ((1 << 15) - 1);
 	for (var c : constellations) {
@@ -791,26 +922,10 @@ public class GpuSolver extends AbstractSolver {
 			numOfJklQueensArrays * n * 4, null, null, errBuf, null);
 		checkCLError(errBuf);
 		for (int wgIdx = 0; wgIdx < numOfJklQueensArrays; wgIdx++) {
-		    var ijkl = constellations.get(wgIdx * config.getWorkgroupSize()).getIjkl();
-		    int j = getj(ijkl);
-		    int k = getk(ijkl);
-		    int l = getl(ijkl);
-		    // the rd from queen j and k with respect to the last row
-		    int rdiag = (L >> j) | (L >> (n - 1 - k));
-		    // the ld from queen j and l with respect to the last row
-		    int ldiag = (L >> j) | (L >> l);
-		    for (int row = 0; row < n; row++) {
-			jklQueensPtr.putInt(wgIdx * n * 4 + ((n - 1 - row) * 4),
-				(ldiag >> row) | (rdiag << row) | L | 1);
-		    }
-		    ldiag = L >> k;
-		    rdiag = 1 << l;
+		    var jklQueens = jklQueens(n, constellations.get(wgIdx * config.getWorkgroupSize()).getIjkl());
 		    for (int row = 0; row < n; row++) {
-			int idx = wgIdx * n * 4 + (row * 4);
-			jklQueensPtr.putInt(idx, jklQueensPtr.getInt(idx) | (ldiag << row) | (rdiag >> row));
+			jklQueensPtr.putInt(wgIdx * n * 4 + (row * 4), jklQueens[row]);
 		    }
-		    jklQueensPtr.putInt(wgIdx * n * 4 + (k * 4), ~L);
-		    jklQueensPtr.putInt(wgIdx * n * 4 + (l * 4), ~1);
 		}
 		checkCLError(clEnqueueUnmapMemObject(memQueue, jklQueensMem, jklQueensPtr, null, null));
 
@@ -842,13 +957,16 @@ public class GpuSolver extends AbstractSolver {
 		long xEvent = xEventBuf.get(0);
 
 		// wait for kernel to finish and continuously read results from gpu
+		// a running kernel can not be aborted, so after cancel() the results that are
+		// done so far are read and the kernel finishes in the background (the
+		// OpenCL objects are only deleted after it has finished)
 		IntBuffer eventStatusBuf = stack.mallocInt(1);
 		while (true) {
 		    if (getUpdateInterval() > 0)
 			readResults(resPtr, constellations);
 
 		    checkCLError(clGetEventInfo(xEvent, CL_EVENT_COMMAND_EXECUTION_STATUS, eventStatusBuf, null));
-		    if (eventStatusBuf.get(0) == CL_COMPLETE)
+		    if (eventStatusBuf.get(0) == CL_COMPLETE || isCancelRequested())
 			break;
 
 		    try {
@@ -883,8 +1001,9 @@ public class GpuSolver extends AbstractSolver {
 		    // synchronize with the list of constellations on the RAM
 		    constellations.get(i).setSolutions(solutionsForConstellation);
 
-		    solutions.addAndGet(solutionsForConstellation);
-		    solvedConstellations.incrementAndGet();
+		    progressCounter.add(solutionsForConstellation);
+		    uniqueSolutions.add(solutionsForConstellation);
+		    fireConstellationSolved(constellations.get(i), solutionsForConstellation);
 		    
 		    solvedConstellationsIndexes.add(i);
 		}
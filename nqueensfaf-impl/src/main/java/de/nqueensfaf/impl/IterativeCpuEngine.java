@@ -0,0 +1,155 @@
+package de.nqueensfaf.impl;
+
+import java.util.function.BooleanSupplier;
+
+// walks the same search tree as the recursive SQ* functions of the CpuSolverThread,
+// but with an explicit stack and without any method calls per placed queen
+// instead of one function per arrangement of the queens i, j, k and l, the special
+// rows of a constellation are written into per row tables before solving it:
+// - in the row before k or l (or before both, if they are adjacent), the next
+// queen is placed with a shift of 2 or 3 rows and the diagonals of the skipped
+// queens are added afterwards (same as in the mark1 and mark2 rows)
+// - when entering the row jmark, the diagonal jr is occupied
+// - when entering the row n-1-jmark, the diagonal jl is occupied (for d <big>)
+// - in the row endmark, a solution is counted if the row is free (for d=2 the
+// rightmost column must not be the only free one)
+// like the recursive functions, it stops in the first rows of the constellation
+// when aborted returns true (see CpuSolver.CONTROL_ROWS)
+class IterativeCpuEngine {
+
+    private final int n, L, L3;
+    private final BooleanSupplier aborted;
+
+    // per row tables
+    private final int[] shift, ldAdd, rdAdd, entryLd, entryRd;
+    // stack, indexed by row
+    private final int[] ldStack, rdStack, colStack, freeStack, prevRow;
+
+    IterativeCpuEngine(int n, BooleanSupplier aborted) {
+	this.n = n;
+	this.aborted = aborted;
+	L = 1 << (n - 1);
+	L3 = 1 << (n - 3);
+	shift = new int[n];
+	ldAdd = new int[n];
+	rdAdd = new int[n];
+	entryLd = new int[n];
+	entryRd = new int[n];
+	ldStack = new int[n];
+	rdStack = new int[n];
+	colStack = new int[n];
+	freeStack = new int[n];
+	prevRow = new int[n];
+    }
+
+    // returns the number of solutions of the constellation without the symmetry
+    // factor, ld, rd, col and free are the start values of the CpuSolverThread for
+    // the row start
+    long count(int j, int k, int l, int start, int ld, int rd, int col, int free) {
+	for (int row = 0; row < n; row++) {
+	    shift[row] = 1;
+	    ldAdd[row] = rdAdd[row] = entryLd[row] = entryRd[row] = 0;
+	}
+
+	// the last free row, rows k and l at the very end of the board are no free rows
+	int endmark = n - 2;
+	while (endmark == k || endmark == l)
+	    endmark--;
+	// for d=2, the rightmost column must not be the only free one in the last row
+	final int endMask = j == n - 3 ? ~1 : ~0;
+
+	// skip the rows k and l
+	final boolean kAhead = start < k && k < endmark;
+	final boolean lAhead = start < l && l < endmark;
+	if (kAhead && lAhead && Math.abs(k - l) == 1) {
+	    int row = Math.min(k, l) - 1, to = Math.max(k, l) + 1;
+	    shift[row] = 3;
+	    ldAdd[row] = 1 << (to - l - 1);
+	    rdAdd[row] = L3 >> (to - k - 1);
+	} else {
+	    if (kAhead) {
+		shift[k - 1] = 2;
+		rdAdd[k - 1] = L3;
+	    }
+	    if (lAhead) {
+		shift[l - 1] = 2;
+		ldAdd[l - 1] = 1;
+	    }
+	}
+
+	// occupy the diagonals of queen j, if queen j is more than 2 columns away from
+	// the corner
+	if (j < n - 3) {
+	    final int jmark = j + 1;
+	    entryLd[jmark] = 1;
+	    if (j <= 2 * n - 34 - start)
+		entryRd[n - 1 - jmark] = L;
+	}
+
+	// all queens are placed already, if start is past the last free row
+	if (start > endmark)
+	    return 1;
+	ld |= entryLd[start];
+	rd |= entryRd[start];
+	free &= ~(entryLd[start] | entryRd[start]);
+	if (start == endmark)
+	    return (free & endMask) != 0 ? 1 : 0;
+
+	// the diagonals occupied when entering a row are added together with the
+	// diagonals of the skipped rows in the row before
+	for (int row = start; row < endmark; row++) {
+	    ldAdd[row] |= entryLd[row + shift[row]];
+	    rdAdd[row] |= entryRd[row + shift[row]];
+	}
+
+	long solutions = 0;
+	int row = start;
+	final int controlRow = start + CpuSolver.CONTROL_ROWS;
+	while (true) {
+	    if (free == 0) {
+		if (row == start)
+		    break;
+		row = prevRow[row];
+		if (row < controlRow && aborted.getAsBoolean())
+		    break;
+		ld = ldStack[row];
+		rd = rdStack[row];
+		col = colStack[row];
+		free = freeStack[row];
+		continue;
+	    }
+	    int bit = free & -free;
+	    free -= bit;
+
+	    final int s = shift[row];
+	    final int next = row + s;
+	    final int nextLd = ((ld | bit) << s) | ldAdd[row];
+	    final int nextRd = ((rd | bit) >> s) | rdAdd[row];
+	    final int nextCol = col | bit;
+	    final int nextFree = ~(nextLd | nextRd | nextCol);
+
+	    if (next == endmark) {
+		if ((nextFree & endMask) != 0)
+		    solutions++;
+		continue;
+	    }
+	    if (nextFree == 0)
+		continue;
+	    // the row after the next one must not be occupied completely
+	    if (shift[next] == 1 && ~((nextLd << 1) | (nextRd >> 1) | nextCol) == 0)
+		continue;
+
+	    ldStack[row] = ld;
+	    rdStack[row] = rd;
+	    colStack[row] = col;
+	    freeStack[row] = free;
+	    prevRow[next] = row;
+	    row = next;
+	    ld = nextLd;
+	    rd = nextRd;
+	    col = nextCol;
+	    free = nextFree;
+	}
+	return solutions;
+    }
+}
@@ -0,0 +1,105 @@
+package de.nqueensfaf.impl;
+
+import static de.nqueensfaf.impl.ConstellationUtils.getJkl;
+import static de.nqueensfaf.impl.ConstellationUtils.jklQueens;
+import static de.nqueensfaf.impl.ConstellationUtils.startCol;
+import static de.nqueensfaf.impl.ConstellationUtils.startLd;
+import static de.nqueensfaf.impl.ConstellationUtils.startRd;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+// cpu version of the gpu kernel
+// the queens j, k and l are not handled by special rows but are part of a row mask
+// table (jklQueens) that is built once per jkl, so all constellations are solved by
+// the same simple loop over all rows of the board
+// unlike the other engines, this one works on the full board width of n bits
+// like the recursive functions of the CpuSolverThread, it stops in the first rows
+// when aborted returns true (see CpuSolver.CONTROL_ROWS)
+class JklMaskCpuEngine {
+
+    private final int n;
+    private final BooleanSupplier aborted;
+    private final Map<Integer, int[]> jklQueensCache = new HashMap<Integer, int[]>();
+    // stack, indexed by row
+    private final int[] ldStack, rdStack, colStack, freeStack;
+
+    JklMaskCpuEngine(int n) {
+	this(n, () -> false);
+    }
+
+    JklMaskCpuEngine(int n, BooleanSupplier aborted) {
+	this.n = n;
+	this.aborted = aborted;
+	ldStack = new int[n];
+	rdStack = new int[n];
+	colStack = new int[n];
+	freeStack = new int[n];
+    }
+
+    // returns the number of solutions of the constellation without the symmetry
+    // factor
+    long count(Constellation constellation) {
+	final int ijkl = constellation.getIjkl();
+	final int[] jklQueens = jklQueensCache.computeIfAbsent(getJkl(ijkl), jkl -> jklQueens(n, ijkl));
+	return count(jklQueens, startLd(n, constellation), startRd(n, constellation), startCol(n, constellation),
+		constellation.getStart(), n - 2);
+    }
+
+    // counts the ways to place one queen in each row from fromRow to lastRow
+    // ld, rd and col are the occupancy of the row fromRow, rows[row] contains all
+    // further fields of the row that are not available (e.g. the jklQueens of the
+    // constellation)
+    // if fromRow is past lastRow, all queens are placed already
+    long count(int[] rows, int ld, int rd, int col, int fromRow, int lastRow) {
+	if (fromRow > lastRow)
+	    return 1;
+	int row = fromRow;
+	int free = ~(ld | rd | col | rows[row]);
+	if (row == lastRow)
+	    return free != 0 ? 1 : 0;
+
+	long solutions = 0;
+	final int controlRow = fromRow + CpuSolver.CONTROL_ROWS;
+	while (true) {
+	    if (free == 0) {
+		if (row == fromRow)
+		    break;
+		row--;
+		if (row < controlRow && aborted.getAsBoolean())
+		    break;
+		ld = ldStack[row];
+		rd = rdStack[row];
+		col = colStack[row];
+		free = freeStack[row];
+		continue;
+	    }
+	    int bit = free & -free;
+	    free -= bit;
+
+	    final int nextLd = (ld | bit) << 1;
+	    final int nextRd = (rd | bit) >>> 1;
+	    final int nextCol = col | bit;
+	    final int nextFree = ~(nextLd | nextRd | nextCol | rows[row + 1]);
+	    if (row + 1 == lastRow) {
+		if (nextFree != 0)
+		    solutions++;
+		continue;
+	    }
+	    if (nextFree == 0)
+		continue;
+
+	    ldStack[row] = ld;
+	    rdStack[row] = rd;
+	    colStack[row] = col;
+	    freeStack[row] = free;
+	    row++;
+	    ld = nextLd;
+	    rd = nextRd;
+	    col = nextCol;
+	    free = nextFree;
+	}
+	return solutions;
+    }
+}
@@ -0,0 +1,61 @@
+package de.nqueensfaf.impl;
+
+/**
+ * Like {@link Constellation}, but for board sizes up to 63. The occupancy of
+ * the start row is stored in a {@code long} and each of the queens i, j, k and
+ * l takes 6 bits of {@code startIjkl}, the start row is stored above them.
+ */
+public final class LongConstellation {
+
+    private long ld, rd, col;
+    private int startIjkl;
+    private long solutions;
+
+    // default constructor needed for Kryo deserialization
+    public LongConstellation() {
+    }
+
+    public LongConstellation(long ld, long rd, long col, int startIjkl) {
+	this.ld = ld;
+	this.rd = rd;
+	this.col = col;
+	this.startIjkl = startIjkl;
+    }
+
+    public LongConstellation(long ld, long rd, long col, int startIjkl, long solutions) {
+	this(ld, rd, col, startIjkl);
+	this.solutions = solutions;
+    }
+
+    public long getLd() {
+	return ld;
+    }
+
+    public long getRd() {
+	return rd;
+    }
+
+    public long getCol() {
+	return col;
+    }
+
+    public int getStartIjkl() {
+	return startIjkl;
+    }
+
+    public final int getStart() {
+	return startIjkl >> 24;
+    }
+
+    public final int getIjkl() {
+	return startIjkl & ((1 << 24) - 1);
+    }
+
+    public void setSolutions(long solutions) {
+	this.solutions = solutions;
+    }
+
+    public long getSolutions() {
+	return solutions;
+    }
+}
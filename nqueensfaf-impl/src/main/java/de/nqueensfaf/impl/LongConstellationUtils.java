@@ -0,0 +1,146 @@
+package de.nqueensfaf.impl;
+
+import java.util.HashSet;
+
+// the functions of ConstellationUtils for LongConstellations: 6 bits per queen in
+// ijkl and long rows
+public class LongConstellationUtils {
+
+    // functions for ijkl manipulation
+    static int toIjkl(int i, int j, int k, int l) {
+	return (i << 18) + (j << 12) + (k << 6) + l;
+    }
+
+    static int geti(int ijkl) {
+	return ijkl >> 18 & 63;
+    }
+
+    static int getj(int ijkl) {
+	return (ijkl >> 12) & 63;
+    }
+
+    static int getk(int ijkl) {
+	return (ijkl >> 6) & 63;
+    }
+
+    static int getl(int ijkl) {
+	return ijkl & 63;
+    }
+
+    static int getJkl(int ijkl) {
+	return ijkl & 0b111111111111111111;
+    }
+
+    static long getLD(int ijkl, long L) {
+	return (L >>> getj(ijkl)) | (L >>> getl(ijkl));
+    }
+
+    static long getRD(int ijkl, long L) {
+	return (L >>> getj(ijkl)) | (1L << getk(ijkl));
+    }
+
+    // see ConstellationUtils.jklQueens()
+    static long[] jklQueens(int n, int ijkl) {
+	final long L = 1L << (n - 1);
+	int j = getj(ijkl);
+	int k = getk(ijkl);
+	int l = getl(ijkl);
+	var jklQueens = new long[n];
+	long rdiag = (L >> j) | (L >> (n - 1 - k));
+	long ldiag = (L >> j) | (L >> l);
+	for (int row = 0; row < n; row++) {
+	    jklQueens[n - 1 - row] = (ldiag >> row) | (rdiag << row) | L | 1;
+	}
+	ldiag = L >> k;
+	rdiag = 1L << l;
+	for (int row = 0; row < n; row++) {
+	    jklQueens[row] |= (ldiag << row) | (rdiag >> row);
+	}
+	jklQueens[k] = ~L;
+	jklQueens[l] = ~1L;
+	return jklQueens;
+    }
+
+    // see ConstellationUtils.startLd()
+    static long startLd(int n, LongConstellation constellation) {
+	return constellation.getLd()
+		& ~(((1L << (n - 1)) >>> getk(constellation.getIjkl())) << constellation.getStart());
+    }
+
+    static long startRd(int n, LongConstellation constellation) {
+	final int l = getl(constellation.getIjkl());
+	if (l == n - 1)
+	    return constellation.getRd();
+	return constellation.getRd() & ~((1L << l) >>> constellation.getStart());
+    }
+
+    static long startCol(int n, LongConstellation constellation) {
+	return ~((1L << (n - 1)) - 2) ^ constellation.getCol();
+    }
+
+    // true, if starting constellation rotated by any angle has already been found
+    static boolean checkRotations(int n, HashSet<Integer> ijklList, int i, int j, int k, int l) {
+	// rot90
+	if (ijklList.contains(toIjkl(n - 1 - k, n - 1 - l, j, i)))
+	    return true;
+
+	// rot180
+	if (ijklList.contains(toIjkl(n - 1 - j, n - 1 - i, n - 1 - l, n - 1 - k)))
+	    return true;
+
+	// rot270
+	if (ijklList.contains(toIjkl(l, k, n - 1 - i, n - 1 - j)))
+	    return true;
+
+	return false;
+    }
+
+    // rotate and mirror board, so that the queen closest to a corner is on the
+    // right side of the last row
+    static int jAsMin(int n, int ijkl) {
+	int min = Math.min(getj(ijkl), n - 1 - getj(ijkl)), arg = 0;
+
+	if (Math.min(geti(ijkl), n - 1 - geti(ijkl)) < min) {
+	    arg = 2;
+	    min = Math.min(geti(ijkl), n - 1 - geti(ijkl));
+	}
+	if (Math.min(getk(ijkl), n - 1 - getk(ijkl)) < min) {
+	    arg = 3;
+	    min = Math.min(getk(ijkl), n - 1 - getk(ijkl));
+	}
+	if (Math.min(getl(ijkl), n - 1 - getl(ijkl)) < min) {
+	    arg = 1;
+	    min = Math.min(getl(ijkl), n - 1 - getl(ijkl));
+	}
+
+	for (int i = 0; i < arg; i++) {
+	    ijkl = rot90(n, ijkl);
+	}
+
+	if (getj(ijkl) < n - 1 - getj(ijkl))
+	    ijkl = mirvert(n, ijkl);
+
+	return ijkl;
+    }
+
+    // mirror left-right
+    private static int mirvert(int n, int ijkl) {
+	return toIjkl(n - 1 - geti(ijkl), n - 1 - getj(ijkl), getl(ijkl), getk(ijkl));
+    }
+
+    // rotate 90 degrees clockwise
+    private static int rot90(int n, int ijkl) {
+	return toIjkl(n - 1 - getk(ijkl), n - 1 - getl(ijkl), getj(ijkl), geti(ijkl));
+    }
+
+    // how often does a found solution count for this start constellation
+    static int symmetry(int n, int ijkl) {
+	if (geti(ijkl) == n - 1 - getj(ijkl) && getk(ijkl) == n - 1 - getl(ijkl)) // symmetric by rot180?
+	    if (ijkl == rot90(n, ijkl)) // even by rot90?
+		return 2;
+	    else
+		return 4;
+	else
+	    return 8; // none of the above?
+    }
+}
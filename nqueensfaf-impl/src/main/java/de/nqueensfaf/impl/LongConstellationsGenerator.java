@@ -0,0 +1,124 @@
+package de.nqueensfaf.impl;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static de.nqueensfaf.impl.LongConstellationUtils.*;
+
+/**
+ * Like {@link ConstellationsGenerator}, but generates {@link LongConstellation}s
+ * for board sizes up to 63. For big boards, even 4 preset queens result in
+ * millions of constellations, so they should be consumed one by one with
+ * {@link #generate(int, Consumer)} (e.g. to split them into shards) instead of
+ * being collected in a list.
+ */
+public class LongConstellationsGenerator {
+
+    private HashSet<Integer> ijklList;
+    private int n, presetQueens;
+    private long L, mask;
+    private Consumer<LongConstellation> constellationConsumer;
+
+    public LongConstellationsGenerator(int n) {
+	if (n < 1 || n > 63)
+	    throw new IllegalArgumentException(
+		    "could not initialize LongConstellationsGenerator: " + n + " is not a number between 0 and 64 (exclusive)");
+	this.n = n;
+
+	L = (1L << (n - 1));
+	mask = (L << 1) - 1;
+    }
+
+    public List<LongConstellation> generate(int presetQueens) {
+	var constellations = new ArrayList<LongConstellation>();
+	generate(presetQueens, constellation -> constellations.add(constellation));
+	return constellations;
+    }
+
+    public void generate(int presetQueens, Consumer<LongConstellation> constellationConsumer) {
+	if (presetQueens < 4)
+	    throw new IllegalArgumentException(
+		    "could not initialize LongConstellationsGenerator: presetQueens must be >=4");
+	this.presetQueens = presetQueens;
+	this.constellationConsumer = constellationConsumer;
+
+	generateIjkls();
+
+	int i, j, k, l;
+	long ld, rd, col;
+	for (int ijkl : ijklList) {
+	    ijkl = jAsMin(n, ijkl);
+	    i = geti(ijkl);
+	    j = getj(ijkl);
+	    k = getk(ijkl);
+	    l = getl(ijkl);
+
+	    // same as in ConstellationsGenerator
+	    ld = (L >>> (i - 1)) | (1L << (n - k));
+	    rd = (L >>> (i + 1)) | (1L << (l - 1));
+	    col = 1 | L | (L >>> i) | (L >>> j);
+
+	    placePresetQueens(ijkl, ld, rd, col, 1, j == n - 1 ? 3 : 4);
+	}
+	this.constellationConsumer = null;
+    }
+
+    private void generateIjkls() {
+	ijklList = new HashSet<Integer>();
+
+	// half of n rounded up
+	final int halfN = (n + 1) / 2;
+
+	// calculate starting constellations for no Queens in corners
+	for (int j = 1; j < halfN; j++) { // go through last row
+	    for (int l = j + 1; l < n - 1; l++) { // go through last col
+		for (int k = n - j - 2; k > 0; k--) { // go through first col
+		    if (k == l) // skip if occupied
+			continue;
+		    for (int i = j + 1; i < n - 1; i++) { // go through first row
+			if (i == n - 1 - l || i == k) // skip if occupied
+			    continue;
+
+			if (!checkRotations(n, ijklList, i, j, k, l)) {
+			    // if no rotation-symmetric starting constellation is found
+			    ijklList.add(toIjkl(i, j, k, l));
+			}
+		    }
+		}
+	    }
+	}
+
+	// calculating start constellations with the first Queen on the corner square
+	// (0,0)
+	for (int k = 1; k < n - 2; k++) { // j is idx of Queen in last row
+	    for (int i = k + 1; i < n - 1; i++) { // l is idx of Queen in last col
+		// always add the constellation, we can not accidently get symmetric ones
+		ijklList.add(toIjkl(i, n - 1, k, n - 1));
+	    }
+	}
+    }
+
+    // generate sub constellations for each starting constellation
+    private void placePresetQueens(int ijkl, long ld, long rd, long col, int row, int queens) {
+	// in row k and l just go further
+	if (row == getk(ijkl) || row == getl(ijkl)) {
+	    placePresetQueens(ijkl, ld << 1, rd >>> 1, col, row + 1, queens);
+	    return;
+	}
+	// add queens until we have preQueens queens
+	if (queens == presetQueens) {
+	    constellationConsumer.accept(new LongConstellation(ld, rd, col, (row << 24) | ijkl, -1));
+	    return;
+	}
+	long free = (~(ld | rd | col | (getLD(ijkl, L) >>> (n - 1 - row)) | (getRD(ijkl, L) << (n - 1 - row))))
+		& mask;
+	long bit;
+	while (free != 0) {
+	    bit = free & (-free);
+	    free -= bit;
+	    placePresetQueens(ijkl, (ld | bit) << 1, (rd | bit) >>> 1, col | bit, row + 1, queens + 1);
+	}
+    }
+}
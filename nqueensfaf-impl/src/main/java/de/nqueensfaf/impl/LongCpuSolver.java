@@ -0,0 +1,358 @@
+package de.nqueensfaf.impl;
+
+import static de.nqueensfaf.impl.ConstellationUtils.MIN_CONSTELLATIONS_N;
+import static de.nqueensfaf.impl.ConstellationUtils.smallBoardSolutions;
+import static de.nqueensfaf.impl.LongConstellationUtils.getJkl;
+import static de.nqueensfaf.impl.LongConstellationUtils.jklQueens;
+import static de.nqueensfaf.impl.LongConstellationUtils.startCol;
+import static de.nqueensfaf.impl.LongConstellationUtils.startLd;
+import static de.nqueensfaf.impl.LongConstellationUtils.startRd;
+import static de.nqueensfaf.impl.LongConstellationUtils.symmetry;
+
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import de.nqueensfaf.core.AbstractSolver;
+import de.nqueensfaf.core.ExecutionState;
+
+/**
+ * CPU solver for board sizes up to 63. Works like the {@link CpuSolver}, but
+ * stores the rows of the board in a {@code long} and solves
+ * {@link LongConstellation}s. Solving a whole board of size 32 or bigger is out
+ * of reach, so the intended use is to solve a part of the constellations (e.g.
+ * one shard of the constellations of {@link LongConstellationsGenerator}),
+ * which can be passed to {@link #load(int, long, List)}.
+ * <p>
+ * The total number of solutions exceeds the range of a {@code long} from N=29
+ * on. It is accumulated in a {@link BigInteger}, see
+ * {@link #getExactSolutions()}.
+ */
+public class LongCpuSolver extends AbstractSolver {
+
+    private List<LongConstellation> constellations = new ArrayList<LongConstellation>();
+    private long start, duration, storedDuration;
+    private boolean stateLoaded;
+    private int presetQueens = 4, threadCount = 1;
+
+    private volatile BigInteger solutions = BigInteger.ZERO;
+    private final AtomicInteger solvedConstellations = new AtomicInteger(0); // for progress
+
+    private final Kryo kryo = new Kryo();
+
+    public LongCpuSolver() {
+	kryo.register(LongCpuSolverProgressState.class);
+	kryo.register(ArrayList.class);
+	kryo.register(LongConstellation.class);
+    }
+
+    // setters and getters
+    public void setPresetQueens(int presetQueens) {
+	this.presetQueens = presetQueens;
+    }
+
+    public int getPresetQueens() {
+	return presetQueens;
+    }
+
+    public void setThreadCount(int threadCount) {
+	if (threadCount < 1)
+	    throw new IllegalArgumentException("invalid value for thread count: not a number >0");
+	this.threadCount = threadCount;
+    }
+
+    public int getThreadCount() {
+	return threadCount;
+    }
+
+    @Override
+    public void setN(int n) {
+	if (stateLoaded)
+	    throw new IllegalStateException("could not change N because a solver state was loaded");
+	super.setN(n);
+    }
+
+    @Override
+    protected int getMaxN() {
+	return 63;
+    }
+
+    @Override
+    public void save(String path) throws IOException {
+	if (!getExecutionState().isBusy() && !stateLoaded)
+	    throw new IllegalStateException(
+		    "progress of LongCpuSolver can only be saved during the solving process or after it was canceled");
+
+	try (Output output = new Output(new GZIPOutputStream(new FileOutputStream(path)))) {
+	    kryo.writeObject(output, new LongCpuSolverProgressState(getN(), getDuration(), constellations));
+	    output.flush();
+	} catch (IOException e) {
+	    throw new IOException("could not write long cpu solver progress to file: " + e.getMessage(), e);
+	}
+    }
+
+    @Override
+    public void load(String path) throws IOException {
+	if (!getExecutionState().isIdle())
+	    throw new IllegalStateException("solver progress can only be restored from a file when idle");
+
+	try (Input input = new Input(new GZIPInputStream(new FileInputStream(path)))) {
+	    var progress = kryo.readObject(input, LongCpuSolverProgressState.class);
+	    load(progress.n(), progress.storedDuration(), progress.constellations());
+	} catch (Exception e) {
+	    throw new IOException("could not read solver state from file: " + e.getMessage(), e);
+	}
+    }
+
+    /**
+     * Injects the constellations that should be solved. Constellations with a
+     * solution count {@code >=0} are treated as solved, all others are solved by
+     * the next call of {@link #start()}. This way, any part of the constellations
+     * of a board can be solved.
+     *
+     * @param n              the board size.
+     * @param storedDuration the time that was already spent on the
+     *                       constellations.
+     * @param constellations the constellations.
+     */
+    public void load(int n, long storedDuration, List<LongConstellation> constellations) {
+	if (!getExecutionState().isIdle())
+	    throw new IllegalStateException("solver progress can only be injected when idle");
+
+	setN(n);
+	this.storedDuration = storedDuration;
+	this.constellations = constellations;
+
+	// update solvedConstellations and solution count
+	solutions = BigInteger.ZERO;
+	solvedConstellations.set(0);
+	for (var c : constellations) {
+	    if (c.getSolutions() >= 0) {
+		solutions = solutions.add(BigInteger.valueOf(c.getSolutions()));
+		solvedConstellations.incrementAndGet();
+	    }
+	}
+
+	stateLoaded = true;
+    }
+
+    @Override
+    public void reset() {
+	solutions = BigInteger.ZERO;
+	solvedConstellations.set(0);
+	duration = start = storedDuration = 0;
+	constellations.clear();
+	stateLoaded = false;
+    }
+
+    @Override
+    public long getDuration() {
+	if (getExecutionState().isBefore(ExecutionState.FINISHED) && start != 0)
+	    return System.currentTimeMillis() - start + storedDuration - getPausedDuration();
+	return duration;
+    }
+
+    @Override
+    public float getProgress() {
+	if (constellations.size() == 0)
+	    return 0;
+	return (float) solvedConstellations.get() / constellations.size();
+    }
+
+    /**
+     * Returns the number of solutions found so far, or {@link Long#MAX_VALUE} if
+     * it does not fit into a {@code long}.
+     *
+     * @see #getExactSolutions()
+     */
+    @Override
+    public long getSolutions() {
+	final BigInteger solutions = this.solutions;
+	return solutions.bitLength() < Long.SIZE ? solutions.longValue() : Long.MAX_VALUE;
+    }
+
+    /**
+     * Returns the exact number of solutions found so far.
+     *
+     * @return the number of solutions.
+     */
+    public BigInteger getExactSolutions() {
+	return solutions;
+    }
+
+    public List<LongConstellation> getConstellations() {
+	return constellations;
+    }
+
+    @Override
+    public void solve() {
+	duration = 0;
+	start = System.currentTimeMillis();
+
+	if (getN() < MIN_CONSTELLATIONS_N) {
+	    constellations = new ArrayList<LongConstellation>();
+	    solutions = BigInteger.valueOf(smallBoardSolutions(getN()));
+	    duration = System.currentTimeMillis() - start - getPausedDuration();
+	    stateLoaded = false;
+	    return;
+	}
+
+	if (!stateLoaded) {
+	    solutions = BigInteger.ZERO;
+	    solvedConstellations.set(0);
+	    storedDuration = 0;
+	    constellations = new LongConstellationsGenerator(getN()).generate(presetQueens);
+	} else {
+	    stateLoaded = false;
+	}
+
+	// ignore loaded constellations that have already been solved
+	var unsolvedConstellations = new ArrayList<LongConstellation>();
+	for (LongConstellation c : constellations)
+	    if (c.getSolutions() < 0)
+		unsolvedConstellations.add(c);
+
+	// the threads take the next unsolved constellation until there are none left or
+	// the solver is canceled, and wait between two constellations while it is paused
+	final AtomicInteger next = new AtomicInteger(0);
+	ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+	var futures = new ArrayList<Future<?>>();
+	for (int i = 0; i < threadCount; i++) {
+	    futures.add(executor.submit(() -> {
+		var counter = new LongJklMaskCounter(getN());
+		int idx;
+		while (awaitResume() && (idx = next.getAndIncrement()) < unsolvedConstellations.size()) {
+		    LongConstellation c = unsolvedConstellations.get(idx);
+		    long constellationSolutions = Math.multiplyExact(counter.count(c), symmetry(getN(), c.getIjkl()));
+		    c.setSolutions(constellationSolutions);
+		    addSolutions(constellationSolutions);
+		    solvedConstellations.incrementAndGet();
+		    fireConstellationSolved(c, constellationSolutions);
+		}
+	    }));
+	}
+
+	// wait for the threads to finish
+	executor.shutdown();
+	try {
+	    if (executor.awaitTermination(365, TimeUnit.DAYS)) {
+		// finished
+		duration = System.currentTimeMillis() - start + storedDuration - getPausedDuration();
+	    }
+	    for (var future : futures)
+		future.get();
+	} catch (InterruptedException e) {
+	    throw new RuntimeException("could not wait for long cpu solver threads to terminate: " + e.getMessage(), e);
+	} catch (ExecutionException e) {
+	    throw new RuntimeException("could not solve constellation: " + e.getCause().getMessage(), e.getCause());
+	}
+	if (isCancelRequested() && solvedConstellations.get() < constellations.size()) {
+	    // keep the solved constellations like a loaded state, so that the next start
+	    // continues with the unsolved ones
+	    duration = System.currentTimeMillis() - start + storedDuration - getPausedDuration();
+	    storedDuration = duration;
+	    stateLoaded = true;
+	    throw new CancellationException("long cpu solver was canceled");
+	}
+	stateLoaded = false;
+    }
+
+    private synchronized void addSolutions(long constellationSolutions) {
+	solutions = solutions.add(BigInteger.valueOf(constellationSolutions));
+    }
+
+    private record LongCpuSolverProgressState(int n, long storedDuration, List<LongConstellation> constellations) {
+    }
+
+    // the JklMaskCpuEngine with long rows, one instance per thread
+    private static class LongJklMaskCounter {
+
+	private final int n;
+	private final Map<Integer, long[]> jklQueensCache = new HashMap<Integer, long[]>();
+	// stack, indexed by row
+	private final long[] ldStack, rdStack, colStack, freeStack;
+
+	LongJklMaskCounter(int n) {
+	    this.n = n;
+	    ldStack = new long[n];
+	    rdStack = new long[n];
+	    colStack = new long[n];
+	    freeStack = new long[n];
+	}
+
+	// returns the number of solutions of the constellation without the symmetry
+	// factor
+	long count(LongConstellation constellation) {
+	    final int ijkl = constellation.getIjkl();
+	    final int start = constellation.getStart();
+	    final long[] rows = jklQueensCache.computeIfAbsent(getJkl(ijkl), jkl -> jklQueens(n, ijkl));
+
+	    // the diagonals of the queens k and l and the border columns are contained in
+	    // jklQueens
+	    long ld = startLd(n, constellation), rd = startRd(n, constellation), col = startCol(n, constellation);
+
+	    final int lastRow = n - 2;
+	    int row = start;
+	    long free = ~(ld | rd | col | rows[row]);
+	    if (row == lastRow)
+		return free != 0 ? 1 : 0;
+
+	    long solutions = 0;
+	    while (true) {
+		if (free == 0) {
+		    if (row == start)
+			break;
+		    row--;
+		    ld = ldStack[row];
+		    rd = rdStack[row];
+		    col = colStack[row];
+		    free = freeStack[row];
+		    continue;
+		}
+		long bit = free & -free;
+		free -= bit;
+
+		final long nextLd = (ld | bit) << 1;
+		final long nextRd = (rd | bit) >>> 1;
+		final long nextCol = col | bit;
+		final long nextFree = ~(nextLd | nextRd | nextCol | rows[row + 1]);
+		if (row + 1 == lastRow) {
+		    if (nextFree != 0)
+			solutions++;
+		    continue;
+		}
+		if (nextFree == 0)
+		    continue;
+
+		ldStack[row] = ld;
+		rdStack[row] = rd;
+		colStack[row] = col;
+		freeStack[row] = free;
+		row++;
+		ld = nextLd;
+		rd = nextRd;
+		col = nextCol;
+		free = nextFree;
+	    }
+	    return solutions;
+	}
+    }
+}
@@ -0,0 +1,382 @@
+package de.nqueensfaf.impl;
+
+import static de.nqueensfaf.impl.ConstellationUtils.getJkl;
+import static de.nqueensfaf.impl.ConstellationUtils.jklQueens;
+import static de.nqueensfaf.impl.ConstellationUtils.MIN_CONSTELLATIONS_N;
+import static de.nqueensfaf.impl.ConstellationUtils.smallBoardSolutions;
+import static de.nqueensfaf.impl.ConstellationUtils.startCol;
+import static de.nqueensfaf.impl.ConstellationUtils.startLd;
+import static de.nqueensfaf.impl.ConstellationUtils.startRd;
+import static de.nqueensfaf.impl.ConstellationUtils.symmetry;
+
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import de.nqueensfaf.core.AbstractSolver;
+import de.nqueensfaf.core.ExecutionState;
+
+/**
+ * Solver that counts the solutions of each constellation by meeting in the
+ * middle of the board, similar to the {@link SymSolver}, which solves from the
+ * top and the bottom of the board at once. The free rows of a constellation are
+ * split into an upper and a lower half. First, all placements of the lower half
+ * are enumerated from the bottom upwards and stored in a hash table by the
+ * columns they occupy. Then all placements of the upper half are enumerated and
+ * joined with the placements of the lower half that occupy exactly the
+ * remaining columns and none of their diagonals.
+ * <p>
+ * The constellations and the saving and loading of the progress are the same
+ * as for the {@link CpuSolver}.
+ */
+public class MeetInTheMiddleSolver extends AbstractSolver {
+
+    private List<Constellation> constellations = new ArrayList<Constellation>();
+    private long start, duration, storedDuration;
+    private boolean stateLoaded;
+    private int presetQueens = 4, threadCount = 1;
+
+    private final AtomicLong solutions = new AtomicLong(0);
+    private final AtomicInteger solvedConstellations = new AtomicInteger(0); // for progress
+
+    private final Kryo kryo = new Kryo();
+
+    public MeetInTheMiddleSolver() {
+	kryo.register(MeetInTheMiddleSolverProgressState.class);
+	kryo.register(ArrayList.class);
+	kryo.register(Constellation.class);
+    }
+
+    // setters and getters
+    public void setPresetQueens(int presetQueens) {
+	this.presetQueens = presetQueens;
+    }
+
+    public int getPresetQueens() {
+	return presetQueens;
+    }
+
+    public void setThreadCount(int threadCount) {
+	if (threadCount < 1)
+	    throw new IllegalArgumentException("invalid value for thread count: not a number >0");
+	this.threadCount = threadCount;
+    }
+
+    public int getThreadCount() {
+	return threadCount;
+    }
+
+    @Override
+    public void setN(int n) {
+	if (stateLoaded)
+	    throw new IllegalStateException("could not change N because a solver state was loaded");
+	super.setN(n);
+    }
+
+    @Override
+    public void save(String path) throws IOException {
+	if (!getExecutionState().isBusy() && !stateLoaded)
+	    throw new IllegalStateException(
+		    "progress of MeetInTheMiddleSolver can only be saved during the solving process or after it was canceled");
+
+	try (Output output = new Output(new GZIPOutputStream(new FileOutputStream(path)))) {
+	    kryo.writeObject(output, new MeetInTheMiddleSolverProgressState(getN(), getDuration(), constellations));
+	    output.flush();
+	} catch (IOException e) {
+	    throw new IOException("could not write meet in the middle solver progress to file: " + e.getMessage(), e);
+	}
+    }
+
+    @Override
+    public void load(String path) throws IOException {
+	if (!getExecutionState().isIdle())
+	    throw new IllegalStateException("solver progress can only be restored from a file when idle");
+
+	try (Input input = new Input(new GZIPInputStream(new FileInputStream(path)))) {
+	    var progress = kryo.readObject(input, MeetInTheMiddleSolverProgressState.class);
+	    load(progress.n(), progress.storedDuration(), progress.constellations());
+	} catch (Exception e) {
+	    throw new IOException("could not read solver state from file: " + e.getMessage(), e);
+	}
+    }
+
+    public void load(int n, long storedDuration, List<Constellation> constellations) {
+	if (!getExecutionState().isIdle())
+	    throw new IllegalStateException("solver progress can only be injected when idle");
+
+	setN(n);
+	this.storedDuration = storedDuration;
+	this.constellations = constellations;
+
+	// update solvedConstellations and solution count
+	solutions.set(0);
+	solvedConstellations.set(0);
+	for (var c : constellations) {
+	    if (c.getSolutions() >= 0) {
+		solutions.addAndGet(c.getSolutions());
+		solvedConstellations.incrementAndGet();
+	    }
+	}
+
+	stateLoaded = true;
+    }
+
+    @Override
+    public void reset() {
+	solutions.set(0);
+	solvedConstellations.set(0);
+	duration = start = storedDuration = 0;
+	constellations.clear();
+	stateLoaded = false;
+    }
+
+    @Override
+    public long getDuration() {
+	if (getExecutionState().isBefore(ExecutionState.FINISHED) && start != 0)
+	    return System.currentTimeMillis() - start + storedDuration - getPausedDuration();
+	return duration;
+    }
+
+    @Override
+    public float getProgress() {
+	if (constellations.size() == 0)
+	    return 0;
+	return (float) solvedConstellations.get() / constellations.size();
+    }
+
+    @Override
+    public long getSolutions() {
+	return solutions.get();
+    }
+
+    @Override
+    public void solve() {
+	duration = 0;
+	start = System.currentTimeMillis();
+
+	if (getN() < MIN_CONSTELLATIONS_N) {
+	    constellations = new ArrayList<Constellation>();
+	    solutions.set(smallBoardSolutions(getN()));
+	    duration = System.currentTimeMillis() - start - getPausedDuration();
+	    stateLoaded = false;
+	    return;
+	}
+
+	if (!stateLoaded) {
+	    solutions.set(0);
+	    solvedConstellations.set(0);
+	    storedDuration = 0;
+	    constellations = new ConstellationsGenerator(getN()).generate(presetQueens);
+	} else {
+	    stateLoaded = false;
+	}
+
+	// ignore loaded constellations that have already been solved
+	var unsolvedConstellations = new ArrayList<Constellation>();
+	for (Constellation c : constellations)
+	    if (c.getSolutions() < 0)
+		unsolvedConstellations.add(c);
+
+	// the threads take the next unsolved constellation until there are none left or
+	// the solver is canceled, and wait between two constellations while it is paused
+	final AtomicInteger next = new AtomicInteger(0);
+	ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+	var futures = new ArrayList<Future<?>>();
+	for (int i = 0; i < threadCount; i++) {
+	    futures.add(executor.submit(() -> {
+		var counter = new MeetInTheMiddleCounter(getN());
+		int idx;
+		while (awaitResume() && (idx = next.getAndIncrement()) < unsolvedConstellations.size()) {
+		    Constellation c = unsolvedConstellations.get(idx);
+		    long constellationSolutions = counter.count(c) * symmetry(getN(), c.getIjkl());
+		    c.setSolutions(constellationSolutions);
+		    solutions.addAndGet(constellationSolutions);
+		    solvedConstellations.incrementAndGet();
+		}
+	    }));
+	}
+
+	// wait for the threads to finish
+	executor.shutdown();
+	try {
+	    for (var future : futures)
+		future.get();
+	} catch (InterruptedException e) {
+	    throw new RuntimeException(
+		    "could not wait for meet in the middle solver threads to terminate: " + e.getMessage(), e);
+	} catch (ExecutionException e) {
+	    throw new RuntimeException("could not solve constellation: " + e.getCause().getMessage(), e.getCause());
+	}
+	duration = System.currentTimeMillis() - start + storedDuration - getPausedDuration();
+	if (isCancelRequested() && solvedConstellations.get() < constellations.size()) {
+	    // keep the solved constellations like a loaded state, so that the next start
+	    // continues with the unsolved ones
+	    duration = System.currentTimeMillis() - start + storedDuration - getPausedDuration();
+	    storedDuration = duration;
+	    stateLoaded = true;
+	    throw new CancellationException("meet in the middle solver was canceled");
+	}
+	stateLoaded = false;
+    }
+
+    private record MeetInTheMiddleSolverProgressState(int n, long storedDuration, List<Constellation> constellations) {
+    }
+
+    // counts the solutions of single constellations (without the symmetry factor),
+    // one instance per thread
+    // works on the same board as the JklMaskCpuEngine: the rows start to n-2 are
+    // free, the queens j, k and l are part of the row mask table jklQueens
+    // diagonals are identified by the index column - row + n (ld, to the lower left)
+    // and column + row (rd, to the lower right), so the diagonals of a half can be
+    // stored in a long
+    private static class MeetInTheMiddleCounter {
+
+	// below this number of free rows, the constellation is solved directly
+	private static final int MIN_ROWS = 6;
+
+	private final int n, L, mask;
+	private final JklMaskCpuEngine jklMaskEngine;
+	private final Map<Integer, int[]> jklQueensCache = new HashMap<Integer, int[]>();
+
+	// state of the current constellation
+	private int[] rows;
+	private final int[] occupied;
+	private int mid, usableCols;
+	private long solutions;
+
+	// placements of the lower half, chained per hash bucket of their columns
+	private int size;
+	private int[] lowerCols = new int[1 << 12], nextInBucket = new int[1 << 12];
+	private long[] lowerLds = new long[1 << 12], lowerRds = new long[1 << 12];
+	private int[] buckets = new int[1 << 12];
+	private int bucketMask;
+
+	MeetInTheMiddleCounter(int n) {
+	    this.n = n;
+	    L = 1 << (n - 1);
+	    mask = (L << 1) - 1;
+	    jklMaskEngine = new JklMaskCpuEngine(n);
+	    occupied = new int[n];
+	}
+
+	long count(Constellation constellation) {
+	    final int ijkl = constellation.getIjkl();
+	    final int start = constellation.getStart();
+	    rows = jklQueensCache.computeIfAbsent(getJkl(ijkl), jkl -> jklQueens(n, ijkl));
+
+	    // same start values as in the JklMaskCpuEngine
+	    final int ld = startLd(n, constellation), rd = startRd(n, constellation), col = startCol(n, constellation);
+
+	    final int lastRow = n - 2;
+	    if (lastRow - start + 1 < MIN_ROWS)
+		return jklMaskEngine.count(rows, ld, rd, col, start, lastRow);
+
+	    // columns that can be used by any of the free rows (a border column is free
+	    // in col, but it can only be used in the row of the queen k or l)
+	    usableCols = 0;
+	    for (int row = start; row <= lastRow; row++)
+		usableCols |= ~rows[row];
+	    usableCols &= ~col & mask;
+
+	    // lower half: the rows mid to lastRow, it has 2 to 3 rows less than the upper
+	    // half (this was faster than equal halves)
+	    mid = (start + lastRow + 4) / 2;
+	    for (int row = mid; row <= lastRow; row++)
+		occupied[row] = (ld << (row - start)) | (rd >>> (row - start)) | col | rows[row];
+	    size = 0;
+	    lower(0, 0, 0, 0, 0, lastRow);
+	    if (size == 0)
+		return 0;
+	    buildBuckets();
+
+	    // upper half: the rows start to mid - 1
+	    solutions = 0;
+	    upper(ld, rd, col, start);
+	    return solutions;
+	}
+
+	// places queens from the bottom upwards, ld and rd are moving up the board
+	private void lower(int ld, int rd, int col, long lds, long rds, int row) {
+	    int free = ~(ld | rd | col | occupied[row]) & mask;
+	    while (free != 0) {
+		final int bit = free & -free;
+		free -= bit;
+		final int column = Integer.numberOfTrailingZeros(bit);
+		final long nextLds = lds | (1L << (column - row + n));
+		final long nextRds = rds | (1L << (column + row));
+		if (row == mid)
+		    add(col | bit, nextLds, nextRds);
+		else
+		    lower((ld | bit) >>> 1, (rd | bit) << 1, col | bit, nextLds, nextRds, row - 1);
+	    }
+	}
+
+	// places queens from the top downwards and joins the placements with the ones of
+	// the lower half when reaching the row mid
+	private void upper(int ld, int rd, int col, int row) {
+	    if (row == mid) {
+		final int missingCols = ~col & usableCols;
+		final long upperLds = (long) (ld & mask) << (n - mid);
+		final long upperRds = (long) (rd & mask) << mid;
+		for (int i = buckets[hash(missingCols)]; i >= 0; i = nextInBucket[i])
+		    if (lowerCols[i] == missingCols && (lowerLds[i] & upperLds) == 0 && (lowerRds[i] & upperRds) == 0)
+			solutions++;
+		return;
+	    }
+	    int free = ~(ld | rd | col | rows[row]) & mask;
+	    while (free != 0) {
+		final int bit = free & -free;
+		free -= bit;
+		upper((ld | bit) << 1, (rd | bit) >>> 1, col | bit, row + 1);
+	    }
+	}
+
+	private void add(int col, long ld, long rd) {
+	    if (size == lowerCols.length) {
+		lowerCols = Arrays.copyOf(lowerCols, size * 2);
+		lowerLds = Arrays.copyOf(lowerLds, size * 2);
+		lowerRds = Arrays.copyOf(lowerRds, size * 2);
+		nextInBucket = Arrays.copyOf(nextInBucket, size * 2);
+	    }
+	    lowerCols[size] = col;
+	    lowerLds[size] = ld;
+	    lowerRds[size] = rd;
+	    size++;
+	}
+
+	private void buildBuckets() {
+	    int bucketCount = Integer.highestOneBit(size) << 1;
+	    if (buckets.length < bucketCount)
+		buckets = new int[bucketCount];
+	    bucketMask = bucketCount - 1;
+	    Arrays.fill(buckets, 0, bucketCount, -1);
+	    for (int i = 0; i < size; i++) {
+		final int bucket = hash(lowerCols[i]);
+		nextInBucket[i] = buckets[bucket];
+		buckets[bucket] = i;
+	    }
+	}
+
+	private int hash(int col) {
+	    return (col * 0x9E3779B9 >>> 16 ^ col) & bucketMask;
+	}
+    }
+}
@@ -0,0 +1,126 @@
+package de.nqueensfaf.impl;
+
+import static de.nqueensfaf.impl.ConstellationUtils.getJkl;
+import static de.nqueensfaf.impl.ConstellationUtils.getLD;
+import static de.nqueensfaf.impl.ConstellationUtils.getRD;
+import static de.nqueensfaf.impl.ConstellationUtils.getk;
+import static de.nqueensfaf.impl.ConstellationUtils.getl;
+import static de.nqueensfaf.impl.ConstellationUtils.jklQueens;
+import static de.nqueensfaf.impl.ConstellationUtils.symmetry;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+// estimates the number of solutions and the size of the search tree of a board
+// from a random sample of its constellations
+// the search tree of each sampled constellation is estimated by Knuth's method,
+// see ConstellationUtils.probe() (which also estimates the costs of the
+// constellations)
+// the estimates of the sampled constellations are scaled up to all constellations,
+// the standard error is derived from their variance
+class MonteCarloEstimator {
+
+    private final int n, L;
+    private final Random random;
+    private final Map<Integer, int[]> jklQueensCache = new HashMap<Integer, int[]>();
+
+    MonteCarloEstimator(int n, long seed) {
+	this.n = n;
+	L = 1 << (n - 1);
+	random = new Random(seed);
+    }
+
+    // estimates the totals of all constellations from samples constellations drawn
+    // at random (with replacement), probes paths per constellation
+    Result estimate(List<Constellation> constellations, int samples, int probes) {
+	double solutionsSum = 0, solutionsSquares = 0, nodesSum = 0, nodesSquares = 0;
+	final double[] estimate = new double[2];
+	for (int s = 0; s < samples; s++) {
+	    var c = constellations.get(random.nextInt(constellations.size()));
+	    probe(c, probes, estimate);
+	    solutionsSum += estimate[0];
+	    solutionsSquares += estimate[0] * estimate[0];
+	    nodesSum += estimate[1];
+	    nodesSquares += estimate[1] * estimate[1];
+	}
+	final double scale = constellations.size();
+	return new Result(scale * solutionsSum / samples, scale * standardError(solutionsSum, solutionsSquares, samples),
+		scale * nodesSum / samples, scale * standardError(nodesSum, nodesSquares, samples));
+    }
+
+    // estimates of the number of solutions (including the symmetry factor) and
+    // nodes of the constellation, averaged over probes paths
+    void probe(Constellation constellation, int probes, double[] estimate) {
+	final int ijkl = constellation.getIjkl();
+	final int[] jklQueens = jklQueensCache.computeIfAbsent(getJkl(ijkl), jkl -> jklQueens(n, ijkl));
+	ConstellationUtils.probe(n, constellation, jklQueens, probes, random, estimate);
+	estimate[0] *= symmetry(n, ijkl);
+    }
+
+    // random sub constellations of the given constellations, each with the given
+    // number of free rows left, until their estimated nodes add up to the given
+    // number of nodes
+    // sampledNodes[0] receives their estimated nodes
+    List<Constellation> sample(List<Constellation> constellations, int rows, double nodes, int probes,
+	    double[] sampledNodes) {
+	var sample = new ArrayList<Constellation>();
+	final double[] estimate = new double[2];
+	sampledNodes[0] = 0;
+	while (sampledNodes[0] < nodes) {
+	    var c = descend(constellations.get(random.nextInt(constellations.size())), rows);
+	    if (c == null)
+		continue;
+	    probe(c, probes, estimate);
+	    sampledNodes[0] += estimate[1];
+	    sample.add(c);
+	}
+	return sample;
+    }
+
+    // places queens at random below the start row of the constellation like
+    // ConstellationsGenerator.placePresetQueens() until only the given number of
+    // free rows is left, null if no queen can be placed in a row
+    Constellation descend(Constellation constellation, int rows) {
+	final int ijkl = constellation.getIjkl();
+	final int k = getk(ijkl), l = getl(ijkl);
+	final int mask = (L << 1) - 1;
+	int ld = constellation.getLd(), rd = constellation.getRd(), col = constellation.getCol();
+	int row = constellation.getStart();
+	while (true) {
+	    if (row == k || row == l) {
+		ld <<= 1;
+		rd >>>= 1;
+		row++;
+		continue;
+	    }
+	    if (n - 1 - row <= rows)
+		return new Constellation(ld, rd, col, (row << 20) | ijkl, -1);
+	    int free = ~(ld | rd | col | (getLD(ijkl, L) >>> (n - 1 - row)) | (getRD(ijkl, L) << (n - 1 - row)))
+		    & mask;
+	    if (free == 0)
+		return null;
+	    for (int r = random.nextInt(Integer.bitCount(free)); r > 0; r--)
+		free &= free - 1;
+	    int bit = free & -free;
+	    ld = (ld | bit) << 1;
+	    rd = (rd | bit) >>> 1;
+	    col |= bit;
+	    row++;
+	}
+    }
+
+    private static double standardError(double sum, double squares, int samples) {
+	if (samples < 2)
+	    return Double.POSITIVE_INFINITY;
+	final double mean = sum / samples;
+	final double variance = Math.max(0, (squares - samples * mean * mean) / (samples - 1));
+	return Math.sqrt(variance / samples);
+    }
+
+    // estimated totals and their standard errors
+    record Result(double solutions, double solutionsError, double nodes, double nodesError) {
+    }
+}
@@ -0,0 +1,214 @@
+package de.nqueensfaf.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import de.nqueensfaf.core.AbstractSolver;
+import de.nqueensfaf.core.ExecutionState;
+
+/**
+ * Counts the ways to complete a board on which some queens are already placed.
+ * The preset queens are given by their column in each row (see
+ * {@link #setQueens(int[])}), each row without a preset queen gets one more
+ * queen. Like the constellations of the {@link CpuSolver}, the preset queens
+ * are turned into a mask of the fields they attack in each row and the
+ * remaining rows are solved by the same engine as
+ * {@link CpuSolver.Engine#JKL_MASKS}.
+ * <p>
+ * The search is split into sub boards by placing queens in the first rows
+ * until there are enough sub boards for all threads, like
+ * {@link ConstellationsGenerator#generateSubConstellations} does for
+ * constellations. The solver checks for {@link #cancel()} and {@link #pause()}
+ * between two sub boards, so the search is split even for a single thread. The
+ * progress is the share of solved sub boards.
+ * <p>
+ * For many small queries, {@link #count(int, int[])} avoids the overhead of
+ * the solver (threads, callbacks, timer).
+ */
+public class PartialBoardSolver extends AbstractSolver {
+
+    // empty square in the array of preset queens
+    public static final int EMPTY = -1;
+
+    // sub boards per thread for splitting the search
+    private static final int SUB_BOARDS_PER_THREAD = 64;
+
+    private int[] queens = new int[0];
+    private int threadCount = 1;
+    private long start, duration;
+
+    private final AtomicLong solutions = new AtomicLong(0);
+    private final AtomicInteger solvedSubBoards = new AtomicInteger(0); // for progress
+    private volatile int subBoards;
+
+    // setters and getters
+    /**
+     * Sets the preset queens. {@code queens[row]} is the column of the queen in
+     * the given row or {@link #EMPTY}. Rows beyond the end of the array are empty.
+     *
+     * @param queens the columns of the preset queens.
+     */
+    public void setQueens(int[] queens) {
+	if (getExecutionState().isBusy())
+	    throw new IllegalStateException("could not set queens: solver has already started");
+	this.queens = queens.clone();
+    }
+
+    public int[] getQueens() {
+	return queens.clone();
+    }
+
+    public void setThreadCount(int threadCount) {
+	if (threadCount < 1)
+	    throw new IllegalArgumentException("invalid value for thread count: not a number >0");
+	this.threadCount = threadCount;
+    }
+
+    public int getThreadCount() {
+	return threadCount;
+    }
+
+    @Override
+    public long getDuration() {
+	if (getExecutionState().isBefore(ExecutionState.FINISHED) && start != 0)
+	    return System.currentTimeMillis() - start - getPausedDuration();
+	return duration;
+    }
+
+    @Override
+    public float getProgress() {
+	if (subBoards == 0)
+	    return 0;
+	return (float) solvedSubBoards.get() / subBoards;
+    }
+
+    @Override
+    public long getSolutions() {
+	return solutions.get();
+    }
+
+    /**
+     * Counts the ways to complete the board of size {@code n} with the given preset
+     * queens in the calling thread.
+     *
+     * @param n      the board size.
+     * @param queens the columns of the preset queens, see {@link #setQueens(int[])}.
+     * @return the number of completions, 0 if preset queens attack each other.
+     */
+    public static long count(int n, int[] queens) {
+	final int[] rows = rowMasks(n, queens);
+	if (rows == null)
+	    return 0;
+	return new JklMaskCpuEngine(n).count(rows, 0, 0, 0, 0, n - 1);
+    }
+
+    @Override
+    public void solve() {
+	duration = 0;
+	solutions.set(0);
+	solvedSubBoards.set(0);
+	subBoards = 0;
+	start = System.currentTimeMillis();
+
+	final int n = getN();
+	final int[] rows = rowMasks(n, queens);
+	if (rows == null) {
+	    subBoards = 1;
+	    solvedSubBoards.set(1);
+	    duration = System.currentTimeMillis() - start - getPausedDuration();
+	    return;
+	}
+
+	// split the search until there are enough sub boards
+	var boards = new ArrayList<SubBoard>();
+	boards.add(new SubBoard(0, 0, 0, 0));
+	while (boards.size() < threadCount * SUB_BOARDS_PER_THREAD && boards.size() > 0
+		&& boards.get(0).row() < n - 1)
+	    boards = split(boards, rows);
+	subBoards = boards.size();
+
+	final List<SubBoard> remainingBoards = boards;
+	final AtomicInteger next = new AtomicInteger(0);
+	ExecutorService executor = Executors.newFixedThreadPool(Math.min(threadCount, Math.max(boards.size(), 1)));
+	var futures = new ArrayList<Future<?>>();
+	for (int i = 0; i < threadCount; i++) {
+	    futures.add(executor.submit(() -> {
+		var engine = new JklMaskCpuEngine(n);
+		int idx;
+		while (awaitResume() && (idx = next.getAndIncrement()) < remainingBoards.size()) {
+		    var b = remainingBoards.get(idx);
+		    solutions.addAndGet(engine.count(rows, b.ld(), b.rd(), b.col(), b.row(), n - 1));
+		    solvedSubBoards.incrementAndGet();
+		}
+	    }));
+	}
+	executor.shutdown();
+	try {
+	    for (var future : futures)
+		future.get();
+	} catch (InterruptedException e) {
+	    throw new RuntimeException("could not wait for partial board solver threads to terminate: " + e.getMessage(),
+		    e);
+	} catch (ExecutionException e) {
+	    throw new RuntimeException("could not solve sub board: " + e.getCause().getMessage(), e.getCause());
+	}
+	duration = System.currentTimeMillis() - start - getPausedDuration();
+	if (isCancelRequested() && solvedSubBoards.get() < subBoards)
+	    throw new CancellationException("partial board solver was canceled");
+    }
+
+    // places a queen in the row of each sub board, all sub boards are in the same
+    // row
+    private static ArrayList<SubBoard> split(List<SubBoard> boards, int[] rows) {
+	var subBoards = new ArrayList<SubBoard>();
+	for (var b : boards) {
+	    int free = ~(b.ld() | b.rd() | b.col() | rows[b.row()]);
+	    while (free != 0) {
+		int bit = free & -free;
+		free -= bit;
+		subBoards.add(new SubBoard((b.ld() | bit) << 1, (b.rd() | bit) >>> 1, b.col() | bit, b.row() + 1));
+	    }
+	}
+	return subBoards;
+    }
+
+    // the fields of each row that are not available because they are outside of
+    // the board or attacked by a preset queen, or in the rows of the preset queens
+    // all fields except the queen itself
+    // null, if preset queens attack each other
+    private static int[] rowMasks(int n, int[] queens) {
+	if (queens.length > n)
+	    throw new IllegalArgumentException("invalid value for queens: more than " + n + " rows");
+	final int outside = -1 << n;
+	final int[] rows = new int[n];
+	Arrays.fill(rows, outside);
+	for (int row = 0; row < queens.length; row++) {
+	    final int queen = queens[row];
+	    if (queen == EMPTY)
+		continue;
+	    if (queen < 0 || queen >= n)
+		throw new IllegalArgumentException(
+			"invalid value for queens: column " + queen + " in row " + row + " is not on the board");
+	    final int bit = 1 << queen;
+	    if ((rows[row] & bit) != 0)
+		return null;
+	    for (int r = 0; r < n; r++) {
+		final int distance = Math.abs(r - row);
+		rows[r] |= bit | (bit << distance) | (bit >>> distance);
+	    }
+	    rows[row] = ~bit;
+	}
+	return rows;
+    }
+
+    private record SubBoard(int ld, int rd, int col, int row) {
+    }
+}
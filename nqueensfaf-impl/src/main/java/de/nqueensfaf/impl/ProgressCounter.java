@@ -0,0 +1,44 @@
+package de.nqueensfaf.impl;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import de.nqueensfaf.core.ProgressSnapshot;
+
+// the solution count and the number of solved constellations of a solver
+// both are kept in one immutable state that is swapped with compare-and-set, so
+// that the progress updates always read a solution count and a number of solved
+// constellations that belong together, without blocking the solver threads
+class ProgressCounter {
+
+    private final AtomicReference<State> state = new AtomicReference<State>(new State(0, 0));
+
+    void reset() {
+	state.set(new State(0, 0));
+    }
+
+    // adds a solved constellation with the given number of solutions
+    void add(long constellationSolutions) {
+	State current;
+	do {
+	    current = state.get();
+	} while (!state.compareAndSet(current,
+		new State(current.solutions() + constellationSolutions, current.solvedConstellations() + 1)));
+    }
+
+    long getSolutions() {
+	return state.get().solutions();
+    }
+
+    long getSolvedConstellations() {
+	return state.get().solvedConstellations();
+    }
+
+    ProgressSnapshot snapshot(long duration, long totalConstellations) {
+	final State state = this.state.get();
+	return ProgressSnapshot.ofConstellations(state.solutions(), duration, state.solvedConstellations(),
+		totalConstellations);
+    }
+
+    private record State(long solutions, long solvedConstellations) {
+    }
+}
@@ -0,0 +1,1180 @@
+package de.nqueensfaf.impl;
+
+import java.util.function.BooleanSupplier;
+import java.util.function.ToLongFunction;
+
+// the recursive engine of the CpuSolver, solves a constellation with the recursive
+// function for the arrangement of its queens j, k and l
+// this is the only source of the recursive functions, the GENERATED engine is an
+// N-specialised copy of this class that the CpuEngineCompiler compiles from this
+// file (it is packaged as a resource, see the pom), the declaration and the
+// assignments of the board size fields are replaced by constants
+class RecursiveCpuEngine implements ToLongFunction<int[]> {
+
+    // board size
+    private final int n, n3, n4, L, L3, L4;
+    private long tempcounter = 0; // tempcounter is #(unique solutions) of current start constellation,
+    // solvecounter is #(all solutions)
+
+    // mark1 and mark2 mark the lines k-1 and l-1 (not necessarily in this order),
+    // because in from this line we will directly shift everything to the next free
+    // row
+    // endmark marks the row of the last free row
+    // jmark marks the row j+1, where the diagonal jr from j has to be set
+    private int mark1, mark2, endmark, jmark;
+
+    // the recursive functions stop in the rows before controlRow if aborted returns
+    // true, see CpuSolver.CONTROL_ROWS
+    private final BooleanSupplier aborted;
+    private int controlRow;
+
+    // the last [completionDepth] rows are solved by looking them up in the
+    // completionTable, i.e. when row + completionRows == endmark (null if disabled)
+    private final byte[] completionTable;
+    private final int completionRows;
+
+    // states with at most [transpositionRows] rows left to endmark are stored in
+    // the transpositionTable (null if disabled)
+    private final TranspositionTable transpositionTable;
+    private final int transpositionRows;
+
+    RecursiveCpuEngine(int n, byte[] completionTable, int completionRows, TranspositionTable transpositionTable,
+	    int transpositionRows, BooleanSupplier aborted) {
+	this.n = n;
+	n3 = n - 3;
+	n4 = n - 4;
+	L = 1 << (n - 1);
+	L3 = 1 << n3;
+	L4 = 1 << n4;
+	this.completionTable = completionTable;
+	this.completionRows = completionRows;
+	this.transpositionTable = transpositionTable;
+	this.transpositionRows = transpositionRows;
+	this.aborted = aborted;
+    }
+
+    // args contains j, k, l, start, ld, rd, col, free and controlRow of the
+    // constellation like in the CpuSolverThread
+    // returns the number of solutions without the symmetry factor
+    @Override
+    public long applyAsLong(int[] args) {
+	final int j = args[0], k = args[1], l = args[2], start = args[3], ld = args[4], rd = args[5], col = args[6],
+		free = args[7];
+	controlRow = args[8];
+	tempcounter = 0;
+
+	// big case distinction for deciding which soling algorithm to use
+	// it is a miracel that we got this to actually work..
+	// if queen j is more than 2 columns away from the corner
+	if (j < n - 3) {
+	    jmark = j + 1;
+	    endmark = n - 2;
+	    // if the queen j is more than 2 columns away from the corner but the rd from
+	    // the
+	    // j-queen can be set right at start
+	    if (j > 2 * n - 34 - start) {
+		// k < l
+		if (k < l) {
+		    mark1 = k - 1;
+		    mark2 = l - 1;
+		    // if at least l is yet to come
+		    if (start < l) {
+			// if also k is yet to come
+			if (start < k) {
+			    // if there are free rows between k and l
+			    if (l != k + 1) {
+				SQBkBlBjrB(ld, rd, col, start, free);
+			    }
+			    // if there are no free rows between k and l
+			    else {
+				SQBklBjrB(ld, rd, col, start, free);
+			    }
+			}
+			// if k already came before start and only l is left
+			else {
+			    SQBlBjrB(ld, rd, col, start, free);
+			}
+		    }
+		    // if both k and l already came before start
+		    else {
+			SQBjrB(ld, rd, col, start, free);
+		    }
+		}
+		// l < k
+		else {
+		    mark1 = l - 1;
+		    mark2 = k - 1;
+		    // if at least k is yet to come
+		    if (start < k) {
+			// if also l is yet to come
+			if (start < l) {
+			    // if there is at least one free row between l and k
+			    if (k != l + 1) {
+				SQBlBkBjrB(ld, rd, col, start, free);
+			    }
+			    // if there is no free row between l and k
+			    else {
+				SQBlkBjrB(ld, rd, col, start, free);
+			    }
+			}
+			// if l already came and only k is yet to come
+			else {
+			    SQBkBjrB(ld, rd, col, start, free);
+			}
+		    }
+		    // if both l and k already came before start
+		    else {
+			SQBjrB(ld, rd, col, start, free);
+		    }
+		}
+	    }
+	    // if we have to set some queens first in order to reach the row n-1-jmark where
+	    // the
+	    // rd from queen j
+	    // can be set
+	    else {
+		// k < l
+		if (k < l) {
+		    mark1 = k - 1;
+		    mark2 = l - 1;
+		    // there is at least one free row between rows k and l
+		    if (l != k + 1) {
+			SQBjlBkBlBjrB(ld, rd, col, start, free);
+		    }
+		    // if l comes right after k
+		    else {
+			SQBjlBklBjrB(ld, rd, col, start, free);
+		    }
+		}
+		// l < k
+		else {
+		    mark1 = l - 1;
+		    mark2 = k - 1;
+		    // there is at least on efree row between rows l and k
+		    if (k != l + 1) {
+			SQBjlBlBkBjrB(ld, rd, col, start, free);
+		    }
+		    // if k comes right after l
+		    else {
+			SQBjlBlkBjrB(ld, rd, col, start, free);
+		    }
+		}
+	    }
+	}
+	// if the queen j is exactly 2 columns away from the corner
+	else if (j == n - 3) {
+	    // this means that the last row will always be row n-2
+	    endmark = n - 2;
+	    // k < l
+	    if (k < l) {
+		mark1 = k - 1;
+		mark2 = l - 1;
+		// if at least l is yet to come
+		if (start < l) {
+		    // if k is yet to come too
+		    if (start < k) {
+			// if there are free rows between k and l
+			if (l != k + 1) {
+			    SQd2BkBlB(ld, rd, col, start, free);
+			} else {
+			    SQd2BklB(ld, rd, col, start, free);
+			}
+		    }
+		    // if k was set before start
+		    else {
+			mark2 = l - 1;
+			SQd2BlB(ld, rd, col, start, free);
+		    }
+		}
+		// if k and l already came before start
+		else {
+		    SQd2B(ld, rd, col, start, free);
+		}
+	    }
+	    // l < k
+	    else {
+		mark1 = l - 1;
+		mark2 = k - 1;
+		endmark = n - 2;
+		// if at least k is yet to come
+		if (start < k) {
+		    // if also l is yet to come
+		    if (start < l) {
+			// if there are free rows between l and k
+			if (k != l + 1) {
+			    SQd2BlBkB(ld, rd, col, start, free);
+			}
+			// if there are no free rows between l and k
+			else {
+			    SQd2BlkB(ld, rd, col, start, free);
+			}
+		    }
+		    // if l came before start
+		    else {
+			mark2 = k - 1;
+			SQd2BkB(ld, rd, col, start, free);
+		    }
+		}
+		// if both l and k already came before start
+		else {
+		    SQd2B(ld, rd, col, start, free);
+		}
+	    }
+	}
+	// if the queen j is exactly 1 column away from the corner
+	else if (j == n - 2) {
+	    // k < l
+	    if (k < l) {
+		// k can not be first, l can not be last due to queen placement
+		// thus always end in line n-2
+		endmark = n - 2;
+		// if at least l is yet to come
+		if (start < l) {
+		    // if k is yet to come too
+		    if (start < k) {
+			mark1 = k - 1;
+			// if k and l are next to each other
+			if (l != k + 1) {
+			    mark2 = l - 1;
+			    SQd1BkBlB(ld, rd, col, start, free);
+			}
+			//
+			else {
+			    SQd1BklB(ld, rd, col, start, free);
+			}
+		    }
+		    // if only l is yet to come
+		    else {
+			mark2 = l - 1;
+			SQd1BlB(ld, rd, col, start, free);
+		    }
+		}
+		// if k and l already came
+		else {
+		    SQd1B(ld, rd, col, start, free);
+		}
+	    }
+	    // l < k
+	    else {
+		// if at least k is yet to come
+		if (start < k) {
+		    // if also l is yet to come
+		    if (start < l) {
+			// if k is not at the end
+			if (k < n - 2) {
+			    mark1 = l - 1;
+			    endmark = n - 2;
+			    // if there are free rows between l and k
+			    if (k != l + 1) {
+				mark2 = k - 1;
+				SQd1BlBkB(ld, rd, col, start, free);
+			    }
+			    // if there are no free rows between l and k
+			    else {
+				SQd1BlkB(ld, rd, col, start, free);
+			    }
+			}
+			// if k is at the end
+			else {
+			    // if l is not right before k
+			    if (l != n - 3) {
+				mark2 = l - 1;
+				endmark = n - 3;
+				SQd1BlB(ld, rd, col, start, free);
+			    }
+			    // if l is right before k
+			    else {
+				endmark = n - 4;
+				SQd1B(ld, rd, col, start, free);
+			    }
+			}
+		    }
+		    // if only k is yet to come
+		    else {
+			// if k is not at the end
+			if (k != n - 2) {
+			    mark2 = k - 1;
+			    endmark = n - 2;
+			    SQd1BkB(ld, rd, col, start, free);
+			} else {
+			    // if k is at the end
+			    endmark = n - 3;
+			    SQd1B(ld, rd, col, start, free);
+			}
+		    }
+		}
+		// k and l came before start
+		else {
+		    endmark = n - 2;
+		    SQd1B(ld, rd, col, start, free);
+		}
+	    }
+	}
+	// if the queen j is placed in the corner
+	else {
+	    endmark = n - 2;
+	    if (start > k) {
+		SQd0B(ld, rd, col, start, free);
+	    }
+	    // k can not be in the last row due to the way we construct start constellations
+	    // with a queen in the corner and
+	    // due to the way we apply jasmin
+	    else {
+		mark1 = k - 1;
+		SQd0BkB(ld, rd, col, start, free);
+	    }
+	}
+	return tempcounter;
+    }
+
+    // Recursive functions for Placing the Queens
+
+    // IMPORTANT: since the left and right col are occupied by the
+    // startConstalletaion, we only deal
+    // with the bits in between,
+    // hence n-2 bits for a board of size n
+    // the functions recursively call themselves and travel through the board
+    // row-wise
+    // the occupancy of each row is represented with integers in binary
+    // representation (1 occupied,
+    // 0 free)
+    // there are different recursive functions for different arrangements of the
+    // queens i,j,k,l on
+    // the border
+    // in order to reduce the amount of different cases we rotate and mirror the
+    // board in such a
+    // way,
+    // that the queen j in the last row is as close to the right corner as possible
+    // this is done by the function jasmin (j as min)
+    // we call this distance to the corner d and distinguish between d=0,d=1,d=2,d
+    // <small enough>
+    // and d <big>
+    // for d <small enough> the diagonal jl from queen j going upwards to the left
+    // can already be
+    // set
+    // in the first row of the start constellation
+    // for d <big> we have to explicitly set occupy this diagonal in some row before
+    // we can continue
+
+    // NOTATION:
+    // SQ stands for SetQueens and is the prefix of any of the following solver
+    // functions
+    // B stand for block and describes a block of free rows, where nothing special
+    // has to be done
+    // Blocks B are separated by the rows k and l for d<=2
+    // and additionally by row jr for d <small enough> and additionally by row jl
+    // for d <big>
+    // jl is always first and jr is always last, k and l are in between in no fixed
+    // order
+    // (the last fact is a consequence of jasmin)
+
+    // in the last function of every case, respectively, we check check in both next
+    // rows, if there
+    // are free spaces in the row
+
+    // of course, when traveling over row k or l or both or jl or jr, we have to
+    // shift ld and rd by
+    // 2 or 3 rows at once
+    // after skipping these rows we have to occupy the corresponding diagonals
+
+    // for d = 0
+    private void SQd0B(int ld, int rd, int col, int row, int free) {
+	if (row < controlRow && aborted.getAsBoolean())
+	    return;
+	if (row == endmark) {
+	    tempcounter++;
+	    return;
+	}
+	if (completionTable != null && row + completionRows == endmark) {
+	    tempcounter += CompletionTable.count(completionTable, completionRows + 1, ld, rd, col, free, ~0);
+	    return;
+	}
+	final boolean transposition = transpositionTable != null && endmark - row <= transpositionRows;
+	if (transposition) {
+	    final long solutions = transpositionTable.get(ld, rd, col, endmark - row, false);
+	    if (solutions >= 0) {
+		tempcounter += solutions;
+		return;
+	    }
+	}
+	final long tempcounterBefore = tempcounter;
+
+	int bit;
+	int nextfree;
+
+	while (free > 0) {
+	    bit = free & (-free);
+	    free -= bit;
+
+	    int next_ld = ((ld | bit) << 1);
+	    int next_rd = ((rd | bit) >> 1);
+	    int next_col = (col | bit);
+	    nextfree = ~(next_ld | next_rd | next_col);
+	    if (nextfree > 0)
+		if (row < endmark - 1) {
+		    if (~((next_ld << 1) | (next_rd >> 1) | (next_col)) > 0)
+			SQd0B(next_ld, next_rd, next_col, row + 1, nextfree);
+		} else {
+		    SQd0B(next_ld, next_rd, next_col, row + 1, nextfree);
+		}
+	}
+	if (transposition)
+	    transpositionTable.put(ld, rd, col, endmark - row, false, tempcounter - tempcounterBefore);
+    }
+
+    private void SQd0BkB(int ld, int rd, int col, int row, int free) {
+	if (row < controlRow && aborted.getAsBoolean())
+	    return;
+	int bit;
+	int nextfree;
+
+	if (row == mark1) {
+	    while (free > 0) {
+		bit = free & (-free);
+		free -= bit;
+		nextfree = ~(((ld | bit) << 2) | ((rd | bit) >> 2) | (col | bit) | L3);
+		if (nextfree > 0)
+		    SQd0B((ld | bit) << 2, ((rd | bit) >> 2) | L3, col | bit, row + 2, nextfree);
+	    }
+	    return;
+	}
+
+	while (free > 0) {
+	    bit = free & (-free);
+	    free -= bit;
+	    nextfree = ~(((ld | bit) << 1) | ((rd | bit) >> 1) | (col | bit));
+	    if (nextfree > 0)
+		SQd0BkB((ld | bit) << 1, (rd | bit) >> 1, col | bit, row + 1, nextfree);
+	}
+    }
+
+    // for d = 1
+    private void SQd1BklB(int ld, int rd, int col, int row, int free) {
+	if (row < controlRow && aborted.getAsBoolean())
+	    return;
+	int bit;
+	int nextfree;
+
+	if (row == mark1) {
+	    while (free > 0) {
+		bit = free & (-free);
+		free -= bit;
+		nextfree = ~(((ld | bit) << 3) | ((rd | bit) >> 3) | (col | bit) | 1 | L4);
+		if (nextfree > 0)
+		    SQd1B(((ld | bit) << 3) | 1, ((rd | bit) >> 3) | L4, col | bit, row + 3, nextfree);
+	    }
+	    return;
+	}
+
+	while (free > 0) {
+	    bit = free & (-free);
+	    free -= bit;
+	    nextfree = ~(((ld | bit) << 1) | ((rd | bit) >> 1) | (col | bit));
+	    if (nextfree > 0)
+		SQd1BklB((ld | bit) << 1, (rd | bit) >> 1, col | bit, row + 1, nextfree);
+	}
+    }
+
+    private void SQd1B(int ld, int rd, int col, int row, int free) {
+	if (row < controlRow && aborted.getAsBoolean())
+	    return;
+	if (row == endmark) {
+	    tempcounter++;
+	    return;
+	}
+	if (completionTable != null && row + completionRows == endmark) {
+	    tempcounter += CompletionTable.count(completionTable, completionRows + 1, ld, rd, col, free, ~0);
+	    return;
+	}
+	final boolean transposition = transpositionTable != null && endmark - row <= transpositionRows;
+	if (transposition) {
+	    final long solutions = transpositionTable.get(ld, rd, col, endmark - row, false);
+	    if (solutions >= 0) {
+		tempcounter += solutions;
+		return;
+	    }
+	}
+	final long tempcounterBefore = tempcounter;
+
+	int bit;
+	int nextfree;
+
+	while (free > 0) {
+	    bit = free & (-free);
+	    free -= bit;
+
+	    int next_ld = ((ld | bit) << 1);
+	    int next_rd = ((rd | bit) >> 1);
+	    int next_col = (col | bit);
+	    nextfree = ~(next_ld | next_rd | next_col);
+	    if (nextfree > 0)
+		if (row + 1 < endmark) {
+		    if (~((next_ld << 1) | (next_rd >> 1) | (next_col)) > 0)
+			SQd1B(next_ld, next_rd, next_col, row + 1, nextfree);
+		} else {
+		    SQd1B(next_ld, next_rd, next_col, row + 1, nextfree);
+		}
+	}
+	if (transposition)
+	    transpositionTable.put(ld, rd, col, endmark - row, false, tempcounter - tempcounterBefore);
+    }
+
+    private void SQd1BkBlB(int ld, int rd, int col, int row, int free) {
+	if (row < controlRow && aborted.getAsBoolean())
+	    return;
+	int bit;
+	int nextfree;
+
+	if (row == mark1) {
+	    while (free > 0) {
+		bit = free & (-free);
+		free -= bit;
+		nextfree = ~(((ld | bit) << 2) | ((rd | bit) >> 2) | (col | bit) | L3);
+		if (nextfree > 0)
+		    SQd1BlB(((ld | bit) << 2), ((rd | bit) >> 2) | L3, col | bit, row + 2, nextfree);
+	    }
+	    return;
+	}
+
+	while (free > 0) {
+	    bit = free & (-free);
+	    free -= bit;
+	    nextfree = ~(((ld | bit) << 1) | ((rd | bit) >> 1) | (col | bit));
+	    if (nextfree > 0)
+		SQd1BkBlB((ld | bit) << 1, (rd | bit) >> 1, col | bit, row + 1, nextfree);
+	}
+    }
+
+    private void SQd1BlB(int ld, int rd, int col, int row, int free) {
+	if (row < controlRow && aborted.getAsBoolean())
+	    return;
+	int bit;
+	int nextfree;
+
+	if (row == mark2) {
+	    while (free > 0) {
+		bit = free & (-free);
+		free -= bit;
+
+		int next_ld = ((ld | bit) << 2) | 1;
+		int next_rd = ((rd | bit) >> 2);
+		int next_col = (col | bit);
+		nextfree = ~(next_ld | next_rd | next_col);
+		if (nextfree > 0)
+		    if (row + 2 < endmark) {
+			if (~((next_ld << 1) | (next_rd >> 1) | (next_col)) > 0)
+			    SQd1B(next_ld, next_rd, next_col, row + 2, nextfree);
+		    } else {
+			SQd1B(next_ld, next_rd, next_col, row + 2, nextfree);
+		    }
+	    }
+	    return;
+	}
+
+	while (free > 0) {
+	    bit = free & (-free);
+	    free -= bit;
+	    nextfree = ~(((ld | bit) << 1) | ((rd | bit) >> 1) | (col | bit));
+	    if (nextfree > 0)
+		SQd1BlB((ld | bit) << 1, (rd | bit) >> 1, col | bit, row + 1, nextfree);
+	}
+    }
+
+    private void SQd1BlkB(int ld, int rd, int col, int row, int free) {
+	if (row < controlRow && aborted.getAsBoolean())
+	    return;
+	int bit;
+	int nextfree;
+
+	if (row == mark1) {
+	    while (free > 0) {
+		bit = free & (-free);
+		free -= bit;
+		nextfree = ~(((ld | bit) << 3) | ((rd | bit) >> 3) | (col | bit) | 2 | L3);
+		if (nextfree > 0)
+		    SQd1B(((ld | bit) << 3) | 2, ((rd | bit) >> 3) | L3, col | bit, row + 3, nextfree);
+	    }
+	    return;
+	}
+
+	while (free > 0) {
+	    bit = free & (-free);
+	    free -= bit;
+	    nextfree = ~(((ld | bit) << 1) | ((rd | bit) >> 1) | (col | bit));
+	    if (nextfree > 0)
+		SQd1BlkB((ld | bit) << 1, (rd | bit) >> 1, col | bit, row + 1, nextfree);
+	}
+    }
+
+    private void SQd1BlBkB(int ld, int rd, int col, int row, int free) {
+	if (row < controlRow && aborted.getAsBoolean())
+	    return;
+	int bit;
+	int nextfree;
+
+	if (row == mark1) {
+	    while (free > 0) {
+		bit = free & (-free);
+		free -= bit;
+		nextfree = ~(((ld | bit) << 2) | ((rd | bit) >> 2) | (col | bit) | 1);
+		if (nextfree > 0)
+		    SQd1BkB(((ld | bit) << 2) | 1, (rd | bit) >> 2, col | bit, row + 2, nextfree);
+	    }
+	    return;
+	}
+
+	while (free > 0) {
+	    bit = free & (-free);
+	    free -= bit;
+	    nextfree = ~(((ld | bit) << 1) | ((rd | bit) >> 1) | (col | bit));
+	    if (nextfree > 0)
+		SQd1BlBkB((ld | bit) << 1, (rd | bit) >> 1, col | bit, row + 1, nextfree);
+	}
+    }
+
+    private void SQd1BkB(int ld, int rd, int col, int row, int free) {
+	if (row < controlRow && aborted.getAsBoolean())
+	    return;
+	int bit;
+	int nextfree;
+
+	if (row == mark2) {
+	    while (free > 0) {
+		bit = free & (-free);
+		free -= bit;
+		nextfree = ~(((ld | bit) << 2) | ((rd | bit) >> 2) | (col | bit) | L3);
+		if (nextfree > 0)
+		    SQd1B(((ld | bit) << 2), ((rd | bit) >> 2) | L3, col | bit, row + 2, nextfree);
+	    }
+	    return;
+	}
+
+	while (free > 0) {
+	    bit = free & (-free);
+	    free -= bit;
+	    nextfree = ~(((ld | bit) << 1) | ((rd | bit) >> 1) | (col | bit));
+	    if (nextfree > 0)
+		SQd1BkB((ld | bit) << 1, (rd | bit) >> 1, col | bit, row + 1, nextfree);
+	}
+    }
+
+    // for d = 2
+    private void SQd2BlkB(int ld, int rd, int col, int row, int free) {
+	if (row < controlRow && aborted.getAsBoolean())
+	    return;
+	int bit;
+	int nextfree;
+
+	if (row == mark1) {
+	    while (free > 0) {
+		bit = free & (-free);
+		free -= bit;
+		nextfree = ~(((ld | bit) << 3) | ((rd | bit) >> 3) | (col | bit) | L3 | 2);
+		if (nextfree > 0)
+		    SQd2B(((ld | bit) << 3) | 2, ((rd | bit) >> 3) | L3, col | bit, row + 3, nextfree);
+	    }
+	    return;
+	}
+
+	while (free > 0) {
+	    bit = free & (-free);
+	    free -= bit;
+	    nextfree = ~(((ld | bit) << 1) | ((rd | bit) >> 1) | (col | bit));
+	    if (nextfree > 0)
+		SQd2BlkB((ld | bit) << 1, (rd | bit) >> 1, col | bit, row + 1, nextfree);
+	}
+    }
+
+    private void SQd2BklB(int ld, int rd, int col, int row, int free) {
+	if (row < controlRow && aborted.getAsBoolean())
+	    return;
+	int bit;
+	int nextfree;
+
+	if (row == mark1) {
+	    while (free > 0) {
+		bit = free & (-free);
+		free -= bit;
+		nextfree = ~(((ld | bit) << 3) | ((rd | bit) >> 3) | (col | bit) | L4 | 1);
+		if (nextfree > 0)
+		    SQd2B(((ld | bit) << 3) | 1, ((rd | bit) >> 3) | L4, col | bit, row + 3, nextfree);
+	    }
+	    return;
+	}
+
+	while (free > 0) {
+	    bit = free & (-free);
+	    free -= bit;
+	    nextfree = ~(((ld | bit) << 1) | ((rd | bit) >> 1) | (col | bit));
+	    if (nextfree > 0)
+		SQd2BklB((ld | bit) << 1, (rd | bit) >> 1, col | bit, row + 1, nextfree);
+	}
+    }
+
+    private void SQd2BlBkB(int ld, int rd, int col, int row, int free) {
+	if (row < controlRow && aborted.getAsBoolean())
+	    return;
+	int bit;
+	int nextfree;
+
+	if (row == mark1) {
+	    while (free > 0) {
+		bit = free & (-free);
+		free -= bit;
+		nextfree = ~(((ld | bit) << 2) | ((rd | bit) >> 2) | (col | bit) | 1);
+		if (nextfree > 0)
+		    SQd2BkB(((ld | bit) << 2) | 1, (rd | bit) >> 2, col | bit, row + 2, nextfree);
+	    }
+	    return;
+	}
+
+	while (free > 0) {
+	    bit = free & (-free);
+	    free -= bit;
+	    nextfree = ~(((ld | bit) << 1) | ((rd | bit) >> 1) | (col | bit));
+	    if (nextfree > 0)
+		SQd2BlBkB((ld | bit) << 1, (rd | bit) >> 1, col | bit, row + 1, nextfree);
+	}
+    }
+
+    private void SQd2BkBlB(int ld, int rd, int col, int row, int free) {
+	if (row < controlRow && aborted.getAsBoolean())
+	    return;
+	int bit;
+	int nextfree;
+
+	if (row == mark1) {
+	    while (free > 0) {
+		bit = free & (-free);
+		free -= bit;
+		nextfree = ~(((ld | bit) << 2) | ((rd | bit) >> 2) | (col | bit) | (1 << (n3)));
+		if (nextfree > 0)
+		    SQd2BlB(((ld | bit) << 2), ((rd | bit) >> 2) | (1 << (n3)), col | bit, row + 2, nextfree);
+	    }
+	    return;
+	}
+
+	while (free > 0) {
+	    bit = free & (-free);
+	    free -= bit;
+	    nextfree = ~(((ld | bit) << 1) | ((rd | bit) >> 1) | (col | bit));
+	    if (nextfree > 0)
+		SQd2BkBlB((ld | bit) << 1, (rd | bit) >> 1, col | bit, row + 1, nextfree);
+	}
+    }
+
+    private void SQd2BlB(int ld, int rd, int col, int row, int free) {
+	if (row < controlRow && aborted.getAsBoolean())
+	    return;
+	int bit;
+	int nextfree;
+
+	if (row == mark2) {
+	    while (free > 0) {
+		bit = free & (-free);
+		free -= bit;
+		nextfree = ~(((ld | bit) << 2) | ((rd | bit) >> 2) | (col | bit) | 1);
+		if (nextfree > 0)
+		    SQd2B(((ld | bit) << 2) | 1, (rd | bit) >> 2, col | bit, row + 2, nextfree);
+	    }
+	    return;
+	}
+
+	while (free > 0) {
+	    bit = free & (-free);
+	    free -= bit;
+	    nextfree = ~(((ld | bit) << 1) | ((rd | bit) >> 1) | (col | bit));
+	    if (nextfree > 0)
+		SQd2BlB((ld | bit) << 1, (rd | bit) >> 1, col | bit, row + 1, nextfree);
+	}
+    }
+
+    private void SQd2BkB(int ld, int rd, int col, int row, int free) {
+	if (row < controlRow && aborted.getAsBoolean())
+	    return;
+	int bit;
+	int nextfree;
+
+	if (row == mark2) {
+	    while (free > 0) {
+		bit = free & (-free);
+		free -= bit;
+		nextfree = ~(((ld | bit) << 2) | ((rd | bit) >> 2) | (col | bit) | L3);
+		if (nextfree > 0)
+		    SQd2B(((ld | bit) << 2), ((rd | bit) >> 2) | L3, col | bit, row + 2, nextfree);
+	    }
+	    return;
+	}
+
+	while (free > 0) {
+	    bit = free & (-free);
+	    free -= bit;
+	    nextfree = ~(((ld | bit) << 1) | ((rd | bit) >> 1) | (col | bit));
+	    if (nextfree > 0)
+		SQd2BkB((ld | bit) << 1, (rd | bit) >> 1, col | bit, row + 1, nextfree);
+	}
+    }
+
+    private void SQd2B(int ld, int rd, int col, int row, int free) {
+	if (row < controlRow && aborted.getAsBoolean())
+	    return;
+	if (row == endmark) {
+	    if ((free & (~1)) > 0)
+		tempcounter++;
+	    return;
+	}
+	if (completionTable != null && row + completionRows == endmark) {
+	    tempcounter += CompletionTable.count(completionTable, completionRows + 1, ld, rd, col, free, ~1);
+	    return;
+	}
+	final boolean transposition = transpositionTable != null && endmark - row <= transpositionRows;
+	if (transposition) {
+	    final long solutions = transpositionTable.get(ld, rd, col, endmark - row, true);
+	    if (solutions >= 0) {
+		tempcounter += solutions;
+		return;
+	    }
+	}
+	final long tempcounterBefore = tempcounter;
+
+	int bit;
+	int nextfree;
+
+	while (free > 0) {
+	    bit = free & (-free);
+	    free -= bit;
+
+	    int next_ld = ((ld | bit) << 1);
+	    int next_rd = ((rd | bit) >> 1);
+	    int next_col = (col | bit);
+	    nextfree = ~(next_ld | next_rd | next_col);
+	    if (nextfree > 0)
+		if (row < endmark - 1) {
+		    if (~((next_ld << 1) | (next_rd >> 1) | (next_col)) > 0)
+			SQd2B(next_ld, next_rd, next_col, row + 1, nextfree);
+		} else {
+		    SQd2B(next_ld, next_rd, next_col, row + 1, nextfree);
+		}
+	}
+	if (transposition)
+	    transpositionTable.put(ld, rd, col, endmark - row, true, tempcounter - tempcounterBefore);
+    }
+
+    // for d>2 but d <small enough>
+    private void SQBkBlBjrB(int ld, int rd, int col, int row, int free) {
+	if (row < controlRow && aborted.getAsBoolean())
+	    return;
+	int bit;
+	int nextfree;
+
+	if (row == mark1) {
+	    while (free > 0) {
+		bit = free & (-free);
+		free -= bit;
+		nextfree = ~(((ld | bit) << 2) | ((rd | bit) >> 2) | (col | bit) | (1 << (n3)));
+		if (nextfree > 0)
+		    SQBlBjrB(((ld | bit) << 2), ((rd | bit) >> 2) | (1 << (n3)), col | bit, row + 2, nextfree);
+	    }
+	    return;
+	}
+
+	while (free > 0) {
+	    bit = free & (-free);
+	    free -= bit;
+	    nextfree = ~(((ld | bit) << 1) | ((rd | bit) >> 1) | (col | bit));
+	    if (nextfree > 0)
+		SQBkBlBjrB((ld | bit) << 1, (rd | bit) >> 1, col | bit, row + 1, nextfree);
+	}
+    }
+
+    private void SQBlBjrB(int ld, int rd, int col, int row, int free) {
+	if (row < controlRow && aborted.getAsBoolean())
+	    return;
+	int bit;
+	int nextfree;
+
+	if (row == mark2) {
+	    while (free > 0) {
+		bit = free & (-free);
+		free -= bit;
+		nextfree = ~(((ld | bit) << 2) | ((rd | bit) >> 2) | (col | bit) | 1);
+		if (nextfree > 0)
+		    SQBjrB(((ld | bit) << 2) | 1, (rd | bit) >> 2, col | bit, row + 2, nextfree);
+	    }
+	    return;
+	}
+
+	while (free > 0) {
+	    bit = free & (-free);
+	    free -= bit;
+	    nextfree = ~(((ld | bit) << 1) | ((rd | bit) >> 1) | (col | bit));
+	    if (nextfree > 0)
+		SQBlBjrB((ld | bit) << 1, (rd | bit) >> 1, col | bit, row + 1, nextfree);
+	}
+    }
+
+    private void SQBjrB(int ld, int rd, int col, int row, int free) {
+	if (row < controlRow && aborted.getAsBoolean())
+	    return;
+	int bit;
+	int nextfree;
+
+	if (row == jmark) {
+	    free &= (~1);
+	    ld |= 1;
+	    while (free > 0) {
+		bit = free & (-free);
+		free -= bit;
+		nextfree = ~(((ld | bit) << 1) | ((rd | bit) >> 1) | (col | bit));
+		if (nextfree > 0)
+		    SQB(((ld | bit) << 1), (rd | bit) >> 1, col | bit, row + 1, nextfree);
+	    }
+	    return;
+	}
+
+	while (free > 0) {
+	    bit = free & (-free);
+	    free -= bit;
+	    nextfree = ~(((ld | bit) << 1) | ((rd | bit) >> 1) | (col | bit));
+	    if (nextfree > 0)
+		SQBjrB((ld | bit) << 1, (rd | bit) >> 1, col | bit, row + 1, nextfree);
+	}
+    }
+
+    private void SQB(int ld, int rd, int col, int row, int free) {
+	if (row < controlRow && aborted.getAsBoolean())
+	    return;
+	if (row == endmark) {
+	    tempcounter++;
+	    return;
+	}
+	if (completionTable != null && row + completionRows == endmark) {
+	    tempcounter += CompletionTable.count(completionTable, completionRows + 1, ld, rd, col, free, ~0);
+	    return;
+	}
+	final boolean transposition = transpositionTable != null && endmark - row <= transpositionRows;
+	if (transposition) {
+	    final long solutions = transpositionTable.get(ld, rd, col, endmark - row, false);
+	    if (solutions >= 0) {
+		tempcounter += solutions;
+		return;
+	    }
+	}
+	final long tempcounterBefore = tempcounter;
+
+	int bit;
+	int nextfree;
+
+	while (free > 0) {
+	    bit = free & (-free);
+	    free -= bit;
+
+	    int next_ld = ((ld | bit) << 1);
+	    int next_rd = ((rd | bit) >> 1);
+	    int next_col = (col | bit);
+	    nextfree = ~(next_ld | next_rd | next_col);
+	    if (nextfree > 0)
+		if (row < endmark - 1) {
+		    if (~((next_ld << 1) | (next_rd >> 1) | (next_col)) > 0)
+			SQB(next_ld, next_rd, next_col, row + 1, nextfree);
+		} else {
+		    SQB(next_ld, next_rd, next_col, row + 1, nextfree);
+		}
+	}
+	if (transposition)
+	    transpositionTable.put(ld, rd, col, endmark - row, false, tempcounter - tempcounterBefore);
+    }
+
+    private void SQBlBkBjrB(int ld, int rd, int col, int row, int free) {
+	if (row < controlRow && aborted.getAsBoolean())
+	    return;
+	int bit;
+	int nextfree;
+
+	if (row == mark1) {
+	    while (free > 0) {
+		bit = free & (-free);
+		free -= bit;
+		nextfree = ~(((ld | bit) << 2) | ((rd | bit) >> 2) | (col | bit) | 1);
+		if (nextfree > 0)
+		    SQBkBjrB(((ld | bit) << 2) | 1, (rd | bit) >> 2, col | bit, row + 2, nextfree);
+	    }
+	    return;
+	}
+
+	while (free > 0) {
+	    bit = free & (-free);
+	    free -= bit;
+	    nextfree = ~(((ld | bit) << 1) | ((rd | bit) >> 1) | (col | bit));
+	    if (nextfree > 0)
+		SQBlBkBjrB((ld | bit) << 1, (rd | bit) >> 1, col | bit, row + 1, nextfree);
+	}
+    }
+
+    private void SQBkBjrB(int ld, int rd, int col, int row, int free) {
+	if (row < controlRow && aborted.getAsBoolean())
+	    return;
+	int bit;
+	int nextfree;
+
+	if (row == mark2) {
+	    while (free > 0) {
+		bit = free & (-free);
+		free -= bit;
+		nextfree = ~(((ld | bit) << 2) | ((rd | bit) >> 2) | (col | bit) | L3);
+		if (nextfree > 0)
+		    SQBjrB(((ld | bit) << 2), ((rd | bit) >> 2) | L3, col | bit, row + 2, nextfree);
+	    }
+	    return;
+	}
+
+	while (free > 0) {
+	    bit = free & (-free);
+	    free -= bit;
+	    nextfree = ~(((ld | bit) << 1) | ((rd | bit) >> 1) | (col | bit));
+	    if (nextfree > 0)
+		SQBkBjrB((ld | bit) << 1, (rd | bit) >> 1, col | bit, row + 1, nextfree);
+	}
+    }
+
+    private void SQBklBjrB(int ld, int rd, int col, int row, int free) {
+	if (row < controlRow && aborted.getAsBoolean())
+	    return;
+	int bit;
+	int nextfree;
+
+	if (row == mark1) {
+	    while (free > 0) {
+		bit = free & (-free);
+		free -= bit;
+		nextfree = ~(((ld | bit) << 3) | ((rd | bit) >> 3) | (col | bit) | L4 | 1);
+		if (nextfree > 0)
+		    SQBjrB(((ld | bit) << 3) | 1, ((rd | bit) >> 3) | L4, col | bit, row + 3, nextfree);
+	    }
+	    return;
+	}
+
+	while (free > 0) {
+	    bit = free & (-free);
+	    free -= bit;
+	    nextfree = ~(((ld | bit) << 1) | ((rd | bit) >> 1) | (col | bit));
+	    if (nextfree > 0)
+		SQBklBjrB((ld | bit) << 1, (rd | bit) >> 1, col | bit, row + 1, nextfree);
+	}
+    }
+
+    private void SQBlkBjrB(int ld, int rd, int col, int row, int free) {
+	if (row < controlRow && aborted.getAsBoolean())
+	    return;
+	int bit;
+	int nextfree;
+
+	if (row == mark1) {
+	    while (free > 0) {
+		bit = free & (-free);
+		free -= bit;
+		nextfree = ~(((ld | bit) << 3) | ((rd | bit) >> 3) | (col | bit) | L3 | 2);
+		if (nextfree > 0)
+		    SQBjrB(((ld | bit) << 3) | 2, ((rd | bit) >> 3) | L3, col | bit, row + 3, nextfree);
+	    }
+	    return;
+	}
+
+	while (free > 0) {
+	    bit = free & (-free);
+	    free -= bit;
+	    nextfree = ~(((ld | bit) << 1) | ((rd | bit) >> 1) | (col | bit));
+	    if (nextfree > 0)
+		SQBlkBjrB((ld | bit) << 1, (rd | bit) >> 1, col | bit, row + 1, nextfree);
+	}
+    }
+
+    // for d <big>
+    private void SQBjlBkBlBjrB(int ld, int rd, int col, int row, int free) {
+	if (row < controlRow && aborted.getAsBoolean())
+	    return;
+	if (row == n - 1 - jmark) {
+	    rd |= L;
+	    free &= ~L;
+	    SQBkBlBjrB(ld, rd, col, row, free);
+	    return;
+	}
+
+	int bit;
+	int nextfree;
+
+	while (free > 0) {
+	    bit = free & (-free);
+	    free -= bit;
+	    nextfree = ~(((ld | bit) << 1) | ((rd | bit) >> 1) | (col | bit));
+	    if (nextfree > 0)
+		SQBjlBkBlBjrB((ld | bit) << 1, (rd | bit) >> 1, col | bit, row + 1, nextfree);
+	}
+    }
+
+    private void SQBjlBlBkBjrB(int ld, int rd, int col, int row, int free) {
+	if (row < controlRow && aborted.getAsBoolean())
+	    return;
+	if (row == n - 1 - jmark) {
+	    rd |= L;
+	    free &= ~L;
+	    SQBlBkBjrB(ld, rd, col, row, free);
+	    return;
+	}
+
+	int bit;
+	int nextfree;
+
+	while (free > 0) {
+	    bit = free & (-free);
+	    free -= bit;
+	    nextfree = ~(((ld | bit) << 1) | ((rd | bit) >> 1) | (col | bit));
+	    if (nextfree > 0)
+		SQBjlBlBkBjrB((ld | bit) << 1, (rd | bit) >> 1, col | bit, row + 1, nextfree);
+	}
+    }
+
+    private void SQBjlBklBjrB(int ld, int rd, int col, int row, int free) {
+	if (row < controlRow && aborted.getAsBoolean())
+	    return;
+	if (row == n - 1 - jmark) {
+	    rd |= L;
+	    free &= ~L;
+	    SQBklBjrB(ld, rd, col, row, free);
+	    return;
+	}
+
+	int bit;
+	int nextfree;
+
+	while (free > 0) {
+	    bit = free & (-free);
+	    free -= bit;
+	    nextfree = ~(((ld | bit) << 1) | ((rd | bit) >> 1) | (col | bit));
+	    if (nextfree > 0)
+		SQBjlBklBjrB((ld | bit) << 1, (rd | bit) >> 1, col | bit, row + 1, nextfree);
+	}
+    }
+
+    private void SQBjlBlkBjrB(int ld, int rd, int col, int row, int free) {
+	if (row < controlRow && aborted.getAsBoolean())
+	    return;
+	if (row == n - 1 - jmark) {
+	    rd |= L;
+	    free &= ~L;
+	    SQBlkBjrB(ld, rd, col, row, free);
+	    return;
+	}
+
+	int bit;
+	int nextfree;
+
+	while (free > 0) {
+	    bit = free & (-free);
+	    free -= bit;
+	    nextfree = ~(((ld | bit) << 1) | ((rd | bit) >> 1) | (col | bit));
+	    if (nextfree > 0)
+		SQBjlBlkBjrB((ld | bit) << 1, (rd | bit) >> 1, col | bit, row + 1, nextfree);
+	}
+    }
+}
@@ -1,12 +1,17 @@
 package de.nqueensfaf.impl;
 
+import java.util.concurrent.CancellationException;
+
 import de.nqueensfaf.core.AbstractSolver;
 
 public class SimpleSolver extends AbstractSolver {
 
+    private static final int CONTROL_ROWS = 4;
+
     private long solutions = 0;
     private long duration = 0;
     private float progress = 0;
+    private boolean canceled;
 
     public SimpleSolver() {
     }
@@ -19,13 +24,16 @@ public class SimpleSolver extends AbstractSolver {
     public void solve() {
 	solutions = duration = 0;
 	progress = 0;
+	canceled = false;
 	
 	long start = System.currentTimeMillis();
 
 	int mask = (1 << getN()) - 1;
 	backtrack(0, 0, 0, 0, mask, mask);
 	
-	duration = System.currentTimeMillis() - start;
+	duration = System.currentTimeMillis() - start - getPausedDuration();
+	if (canceled)
+	    throw new CancellationException("simple solver was canceled");
 	progress = 1;
     }
 
@@ -34,6 +42,12 @@ public class SimpleSolver extends AbstractSolver {
 	    solutions++;
 	    return;
 	}
+	// pause and cancel are only checked in the first rows, so that they take
+	// effect after at most one sub tree
+	if (row < CONTROL_ROWS && (canceled || !awaitResume())) {
+	    canceled = true;
+	    return;
+	}
 
 	int bit;
 	int nextfree;
@@ -0,0 +1,430 @@
+package de.nqueensfaf.impl;
+
+import static de.nqueensfaf.impl.ConstellationUtils.geti;
+import static de.nqueensfaf.impl.ConstellationUtils.getj;
+import static de.nqueensfaf.impl.ConstellationUtils.getJkl;
+import static de.nqueensfaf.impl.ConstellationUtils.getk;
+import static de.nqueensfaf.impl.ConstellationUtils.getl;
+import static de.nqueensfaf.impl.ConstellationUtils.jklQueens;
+import static de.nqueensfaf.impl.ConstellationUtils.startCol;
+import static de.nqueensfaf.impl.ConstellationUtils.startLd;
+import static de.nqueensfaf.impl.ConstellationUtils.startRd;
+import static de.nqueensfaf.impl.ConstellationUtils.symmetry;
+import static de.nqueensfaf.impl.ConstellationUtils.toIjkl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Enumerates the solutions of a board instead of counting them. The solutions
+ * are found constellation by constellation, the same way as by the
+ * {@link CpuSolver.Engine#JKL_MASKS} engine. Each solution that is found in a
+ * constellation stands for {@code symmetry()} solutions of the board (see
+ * {@link CpuSolver}), which are obtained by rotating and mirroring it.
+ * <p>
+ * A solution is an array of length N that contains the column of the queen in
+ * each row. To avoid an allocation per solution, the same array is passed to
+ * the consumer again and again, so it must be copied if it is kept. The
+ * enumeration is lazy and stops as soon as the consumer does not want any more
+ * solutions (e.g. {@link Stream#limit(long)} or
+ * {@link Stream#anyMatch(java.util.function.Predicate)}). Parallel streams
+ * split the constellations among the threads.
+ */
+public final class SolutionEnumerator {
+
+    // the constellations are generated with 4 preset queens, i.e. (apart from the
+    // queen in the corner case) only the queens i, j, k and l are placed
+    private static final int PRESET_QUEENS = 4;
+
+    // constellations that each thread races in findSolutions() and the number of
+    // queens that are placed in one of them before switching to the next one
+    private static final int RACE_WIDTH = 32;
+    private static final int RACE_NODES = 4096;
+
+    // for each symmetry factor, one transformation of each coset of the
+    // transformations that map the constellation onto itself
+    // - factor 8: no symmetry, all 8 transformations
+    // - factor 4: symmetric by rot180, the cosets of {id, rot180}
+    // - factor 2: symmetric by rot90, the cosets of all rotations
+    private static final int[][] TRANSFORMATIONS = new int[9][];
+    static {
+	TRANSFORMATIONS[8] = new int[] { 0, 1, 2, 3, 4, 5, 6, 7 };
+	TRANSFORMATIONS[4] = new int[] { 0, 1, 4, 5 };
+	TRANSFORMATIONS[2] = new int[] { 0, 4 };
+    }
+
+    private SolutionEnumerator() {
+    }
+
+    /**
+     * Returns a stream of all solutions of the board of size {@code n}. The
+     * elements of the stream are reused, see {@link SolutionEnumerator}.
+     *
+     * @param n        the board size.
+     * @param parallel true for a parallel stream.
+     * @return the stream of solutions.
+     */
+    public static Stream<int[]> stream(int n, boolean parallel) {
+	return StreamSupport.stream(spliterator(n), parallel);
+    }
+
+    /**
+     * Returns a spliterator over all solutions of the board of size {@code n}. The
+     * elements are reused, see {@link SolutionEnumerator}.
+     *
+     * @param n the board size.
+     * @return the spliterator of solutions.
+     */
+    public static Spliterator<int[]> spliterator(int n) {
+	if (n <= 0 || n > 31)
+	    throw new IllegalArgumentException(
+		    "could not enumerate solutions: " + n + " is not a number between 0 and 32 (exclusive)");
+	if (n < 5)
+	    return smallBoardSolutions(n).spliterator();
+	var constellations = new ConstellationsGenerator(n).generate(PRESET_QUEENS);
+	return new SolutionSpliterator(n, constellations, 0, constellations.size());
+    }
+
+    // the constellations do not work for the smallest boards
+    private static List<int[]> smallBoardSolutions(int n) {
+	return switch (n) {
+	case 1 -> List.of(new int[] { 0 });
+	case 4 -> List.of(new int[] { 1, 3, 0, 2 }, new int[] { 2, 0, 3, 1 });
+	default -> List.of();
+	};
+    }
+
+    /**
+     * Returns {@code k} distinct solutions of the board of size {@code n}, or all
+     * solutions if there are fewer. Instead of searching the constellations one
+     * after another, each thread races a number of constellations against each
+     * other, searching a small part of each of them in turn, so that it is not
+     * stuck in a constellation with a big search tree and few solutions. All
+     * threads stop as soon as {@code k} solutions are found, which takes only a few
+     * milliseconds even for N=31. The rotations and mirrorings of each found
+     * solution are counted as solutions as well.
+     *
+     * @param n           the board size.
+     * @param k           the number of solutions.
+     * @param threadCount the number of threads.
+     * @return the solutions as arrays of the columns of the queens.
+     */
+    public static List<int[]> findSolutions(int n, int k, int threadCount) {
+	if (n <= 0 || n > 31)
+	    throw new IllegalArgumentException(
+		    "could not find solutions: " + n + " is not a number between 0 and 32 (exclusive)");
+	if (k < 1)
+	    throw new IllegalArgumentException("invalid value for k: not a number >0");
+	if (threadCount < 1)
+	    throw new IllegalArgumentException("invalid value for thread count: not a number >0");
+	if (n < 5) {
+	    var solutions = smallBoardSolutions(n);
+	    return solutions.subList(0, Math.min(k, solutions.size()));
+	}
+
+	// all start constellations (queens i, j, k and l) in a shuffled order, without
+	// removing the rotated ones, which is too slow for big boards
+	final int[] ijkls = raceIjkls(n);
+	final AtomicInteger next = new AtomicInteger(0);
+	final Map<String, int[]> solutions = new ConcurrentHashMap<String, int[]>();
+	final AtomicBoolean done = new AtomicBoolean(false);
+
+	var threads = new ArrayList<Thread>();
+	for (int t = 0; t < threadCount; t++) {
+	    var thread = new Thread(() -> {
+		final var searches = new ConstellationSearch[RACE_WIDTH];
+		final int[] image = new int[n];
+		int active = 0;
+		for (; active < RACE_WIDTH; active++) {
+		    int idx = next.getAndIncrement();
+		    if (idx >= ijkls.length)
+			break;
+		    searches[active] = new ConstellationSearch(n);
+		    searches[active].start(startConstellation(n, ijkls[idx]));
+		}
+		while (active > 0 && !done.get()) {
+		    for (int s = 0; s < active && !done.get(); s++) {
+			var search = searches[s];
+			if (search.search(RACE_NODES)) {
+			    for (int tr = 0; tr < 8; tr++) {
+				search.transform(tr, image);
+				solutions.putIfAbsent(Arrays.toString(image), image.clone());
+			    }
+			    if (solutions.size() >= k)
+				done.set(true);
+			} else if (search.isFinished()) {
+			    // replace the constellation by the next one
+			    int idx = next.getAndIncrement();
+			    if (idx < ijkls.length) {
+				search.start(startConstellation(n, ijkls[idx]));
+			    } else {
+				searches[s--] = searches[--active];
+				searches[active] = search;
+			    }
+			}
+		    }
+		}
+	    });
+	    thread.start();
+	    threads.add(thread);
+	}
+	for (var thread : threads) {
+	    try {
+		thread.join();
+	    } catch (InterruptedException e) {
+		throw new RuntimeException("could not wait for solution finder threads to terminate: " + e.getMessage(),
+			e);
+	    }
+	}
+	var result = new ArrayList<int[]>(solutions.values());
+	return result.subList(0, Math.min(k, result.size()));
+    }
+
+    // the i, j, k and l of all start constellations, see
+    // ConstellationsGenerator.generateIjkls(), shuffled (with a fixed seed) so that
+    // the threads race very different constellations
+    private static int[] raceIjkls(int n) {
+	var ijkls = new int[n * n * n * n];
+	int count = 0;
+	final int halfN = (n + 1) / 2;
+	for (int j = 1; j < halfN; j++)
+	    for (int l = j + 1; l < n - 1; l++)
+		for (int k = n - j - 2; k > 0; k--)
+		    for (int i = j + 1; i < n - 1; i++)
+			if (k != l && i != n - 1 - l && i != k)
+			    ijkls[count++] = toIjkl(i, j, k, l);
+	for (int k = 1; k < n - 2; k++)
+	    for (int i = k + 1; i < n - 1; i++)
+		ijkls[count++] = toIjkl(i, n - 1, k, n - 1);
+
+	var random = new Random(n);
+	for (int a = count - 1; a > 0; a--) {
+	    int b = random.nextInt(a + 1), tmp = ijkls[a];
+	    ijkls[a] = ijkls[b];
+	    ijkls[b] = tmp;
+	}
+	return Arrays.copyOf(ijkls, count);
+    }
+
+    // the constellation of the queens i, j, k and l without further preset queens
+    // (like ConstellationsGenerator with 4 preset queens, but in the corner case
+    // the additional queen is left to the search)
+    private static Constellation startConstellation(int n, int ijkl) {
+	final int L = 1 << (n - 1);
+	final int i = geti(ijkl), j = getj(ijkl), k = getk(ijkl), l = getl(ijkl);
+	int ld = (L >>> (i - 1)) | (1 << (n - k));
+	int rd = (L >>> (i + 1)) | (1 << (l - 1));
+	int col = 1 | L | (L >>> i) | (L >>> j);
+	int row = 1;
+	while (row == k || row == l) {
+	    ld <<= 1;
+	    rd >>>= 1;
+	    row++;
+	}
+	return new Constellation(ld, rd, col, (row << 20) | ijkl, -1);
+    }
+
+    private static class SolutionSpliterator implements Spliterator<int[]> {
+
+	private final List<Constellation> constellations;
+	private int index; // next constellation
+	private final int end;
+	private final ConstellationSearch search;
+	private boolean searching;
+
+	// the images of the found solution that are still to be passed to the
+	// consumer
+	private final int[] image;
+	private int[] transformations = new int[0];
+	private int nextTransformation;
+
+	SolutionSpliterator(int n, List<Constellation> constellations, int index, int end) {
+	    this.constellations = constellations;
+	    this.index = index;
+	    this.end = end;
+	    search = new ConstellationSearch(n);
+	    image = new int[n];
+	}
+
+	@Override
+	public boolean tryAdvance(Consumer<? super int[]> action) {
+	    while (nextTransformation == transformations.length) {
+		if (!nextSolution())
+		    return false;
+		nextTransformation = 0;
+	    }
+	    search.transform(transformations[nextTransformation++], image);
+	    action.accept(image);
+	    return true;
+	}
+
+	@Override
+	public Spliterator<int[]> trySplit() {
+	    // the constellation that is currently searched stays with this spliterator,
+	    // only the ones that have not been started yet are split
+	    final int lo = index, mid = (lo + end) >>> 1;
+	    if (mid <= lo)
+		return null;
+	    index = mid;
+	    return new SolutionSpliterator(image.length, constellations, lo, mid);
+	}
+
+	@Override
+	public long estimateSize() {
+	    return Long.MAX_VALUE;
+	}
+
+	@Override
+	public int characteristics() {
+	    return NONNULL;
+	}
+
+	// advances to the next solution found in a constellation, false if there are
+	// none left
+	private boolean nextSolution() {
+	    while (true) {
+		if (!searching) {
+		    if (index >= end)
+			return false;
+		    var constellation = constellations.get(index++);
+		    search.start(constellation);
+		    transformations = TRANSFORMATIONS[symmetry(image.length, constellation.getIjkl())];
+		    nextTransformation = transformations.length;
+		    searching = true;
+		}
+		if (search.search(Long.MAX_VALUE))
+		    return true;
+		searching = false;
+	    }
+	}
+    }
+
+    // the search of the solutions of a single constellation, like the
+    // JklMaskCpuEngine, but it can be paused after each solution or after a number
+    // of placed queens
+    private static class ConstellationSearch {
+
+	private final int n, L, lastRow;
+	private final Map<Integer, int[]> jklQueensCache = new HashMap<Integer, int[]>();
+
+	// search state, the stack is indexed by row
+	private int start, row, ld, rd, col, free;
+	private int[] rows;
+	private final int[] ldStack, rdStack, colStack, freeStack;
+
+	// the found solution (column bits of the queens)
+	private final int[] solution;
+
+	ConstellationSearch(int n) {
+	    this.n = n;
+	    L = 1 << (n - 1);
+	    lastRow = n - 2;
+	    ldStack = new int[n];
+	    rdStack = new int[n];
+	    colStack = new int[n];
+	    freeStack = new int[n];
+	    solution = new int[n];
+	}
+
+	void start(Constellation constellation) {
+	    final int ijkl = constellation.getIjkl();
+	    final int i = geti(ijkl), j = getj(ijkl), k = getk(ijkl), l = getl(ijkl);
+	    rows = jklQueensCache.computeIfAbsent(getJkl(ijkl), jkl -> jklQueens(n, ijkl));
+	    start = constellation.getStart();
+
+	    // like JklMaskCpuEngine.count(Constellation)
+	    ld = startLd(n, constellation);
+	    rd = startRd(n, constellation);
+	    col = startCol(n, constellation);
+	    row = start;
+	    free = ~(ld | rd | col | rows[row]);
+
+	    // the preset queens
+	    solution[0] = L >>> i;
+	    solution[n - 1] = L >>> j;
+	    solution[k] = L;
+	    solution[l] = 1;
+	    if (j == n - 1) {
+		// one more queen was placed in the first row that is not k or l
+		int presetRow = 1;
+		while (presetRow == k || presetRow == l)
+		    presetRow++;
+		if (presetRow < start)
+		    solution[presetRow] = constellation.getCol() & ~(1 | L | (L >>> i));
+	    }
+	}
+
+	// true, if the whole constellation has been searched
+	boolean isFinished() {
+	    return free == 0 && row == start;
+	}
+
+	// continues the search until the next solution (true) or until maxNodes queens
+	// have been placed or the constellation is finished (false)
+	boolean search(long maxNodes) {
+	    for (long nodes = 0; nodes < maxNodes; nodes++) {
+		while (free == 0) {
+		    if (row == start)
+			return false;
+		    row--;
+		    ld = ldStack[row];
+		    rd = rdStack[row];
+		    col = colStack[row];
+		    free = freeStack[row];
+		}
+		int bit = free & -free;
+		free -= bit;
+		solution[row] = bit;
+		if (row == lastRow)
+		    return true;
+
+		final int nextLd = (ld | bit) << 1;
+		final int nextRd = (rd | bit) >>> 1;
+		final int nextCol = col | bit;
+		final int nextFree = ~(nextLd | nextRd | nextCol | rows[row + 1]);
+		if (nextFree == 0)
+		    continue;
+
+		ldStack[row] = ld;
+		rdStack[row] = rd;
+		colStack[row] = col;
+		freeStack[row] = free;
+		row++;
+		ld = nextLd;
+		rd = nextRd;
+		col = nextCol;
+		free = nextFree;
+	    }
+	    return false;
+	}
+
+	// writes the solution rotated by (t & 3) * 90 degrees and then mirrored (if
+	// t & 4 is set) to image, converting the column bits to column indices
+	void transform(int t, int[] image) {
+	    final int rotations = t & 3;
+	    final boolean mirror = (t & 4) != 0;
+	    for (int r = 0; r < n; r++) {
+		int qr = r, qc = Integer.numberOfTrailingZeros(solution[r]);
+		for (int a = 0; a < rotations; a++) {
+		    final int c = qc;
+		    qc = n - 1 - qr;
+		    qr = c;
+		}
+		if (mirror)
+		    qc = n - 1 - qc;
+		image[qr] = qc;
+	    }
+	}
+    }
+}
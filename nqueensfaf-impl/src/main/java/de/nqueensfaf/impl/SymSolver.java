@@ -1,111 +1,117 @@
 package de.nqueensfaf.impl;
 
-import de.nqueensfaf.core.AbstractSolver;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+import de.nqueensfaf.core.AbstractSolver;
+import de.nqueensfaf.impl.SymmetricSearch.SubSearch;
+
+/**
+ * Counts the unique solutions that are symmetric by a rotation of 90 or 180
+ * degrees, which is needed to compute the number of unique solutions from the
+ * total number of solutions (see {@link #getUniqueSolutionsTotal(long)}).
+ * <p>
+ * Both searches are split into sub searches by placing the queens of the first
+ * rows, like the {@link CpuSolver} splits the board into constellations by
+ * placing the preset queens. The sub searches are solved by
+ * {@link #setThreadCount(int) multiple threads}, the progress is the share of
+ * solved sub searches. {@link #getSolutions()} returns the number of symmetric
+ * unique solutions found so far.
+ */
 public class SymSolver extends AbstractSolver {
 
+    // sub searches per thread for splitting the searches
+    private static final int SUB_SEARCHES_PER_THREAD = 64;
+
     private long start, end;
     private long solutions90, solutions180;
-    private int mask, L;
+    private int threadCount = 1;
+
+    // solutions found by the searches, see solve()
+    private final AtomicLong found90 = new AtomicLong(0), found180 = new AtomicLong(0);
+    private final AtomicInteger solvedSubSearches = new AtomicInteger(0); // for progress
+    private volatile int subSearches;
+
+    public void setThreadCount(int threadCount) {
+	if (threadCount < 1)
+	    throw new IllegalArgumentException("invalid value for thread count: not a number >0");
+	this.threadCount = threadCount;
+    }
+
+    public int getThreadCount() {
+	return threadCount;
+    }
 
-    private volatile boolean cancel = false;
-    
     @Override
     public void solve() {
-	cancel = false;
 	end = solutions90 = solutions180 = 0;
+	found90.set(0);
+	found180.set(0);
+	solvedSubSearches.set(0);
+	subSearches = 0;
 	
 	start = System.currentTimeMillis();
-	L = 1 << (getN() - 1);
-	mask = (L - 1) | L;
-
-	// occupies the middle column, if the board has odd size
-	int mid = (getN() % 2) * (1 << (getN() / 2));
-
-	// the main diagonals can only be occupied, if the corresponding queen is in the
-	// middle of
-	// the board
-	// this can only be the case for odd n
-	// the queen in the middle of the board never has to be set - if we reach the
-	// middle row, we
-	// already found a solution
-	rot180Solver(1, L, mid, L, 1, 0);
-	rot90Solver(1, L, mid, L, 1, mid, 0, 0);
-
-	// solver for 180 degree symmetric solutions counts every 180 symmetric solution
-	// 4 times and
-	// every 90 degree symmetric solution 4 times
-	// the solver for 90 degree symmetric solutions counts every 90 degree symmetric
-	// solution
-	// double
-	// following values are the unique solution number with their respective
-	// symmetry ONLY
-	solutions180 -= solutions90;
-	solutions180 /= 4;
-	solutions90 /= 2;
 
-	end = System.currentTimeMillis();
-    }
-
-    private void rot90Solver(int ld, int rd, int col, int ldbot, int rdbot, int row, int rowidx, int queens) {
-	if(cancel)
-	    return;
-	
-	// in the mid row we are done
-	if (rowidx == getN() / 2) {
-	    solutions90++;
-	    return;
+	// split the searches until there are enough sub searches
+	final var search = new SymmetricSearch(getN(), this::isCancelRequested);
+	List<SubSearch> searches;
+	if (getN() == 1) {
+	    // the only solution is its own mirror image, so the searches would count it once
+	    // instead of twice
+	    found90.set(2);
+	    found180.set(2);
+	    searches = new ArrayList<SubSearch>();
+	} else
+	    searches = search.subSearches(threadCount * SUB_SEARCHES_PER_THREAD, found90, found180);
+	if (searches.isEmpty()) {
+	    subSearches = 1;
+	    solvedSubSearches.set(1);
+	} else
+	    subSearches = searches.size();
+
+	// the threads take the next sub search until there are none left or the solver
+	// is canceled, and wait between two sub searches while it is paused
+	final List<SubSearch> remainingSearches = searches;
+	final AtomicInteger next = new AtomicInteger(0);
+	ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+	var futures = new ArrayList<Future<?>>();
+	for (int i = 0; i < threadCount; i++) {
+	    futures.add(executor.submit(() -> {
+		int idx;
+		while (awaitResume() && (idx = next.getAndIncrement()) < remainingSearches.size()) {
+		    var s = remainingSearches.get(idx);
+		    (s.rot90() ? found90 : found180).addAndGet(search.solve(s));
+		    solvedSubSearches.incrementAndGet();
+		}
+	    }));
 	}
-	// by rotating 90 degrees we can occupy a row before we reached it
-	// in this case just skip
-	if (((row >>> rowidx) & 1) > 0) {
-	    rot90Solver(ld << 1, rd >>> 1, col, ldbot >>> 1, rdbot << 1, row, rowidx + 1, queens);
-	    return;
+	executor.shutdown();
+	try {
+	    for (var future : futures)
+		future.get();
+	} catch (InterruptedException e) {
+	    throw new RuntimeException("could not wait for sym solver threads to terminate: " + e.getMessage(), e);
+	} catch (ExecutionException e) {
+	    throw new RuntimeException("could not solve sub search: " + e.getCause().getMessage(), e.getCause());
 	}
-
-	// revbit is reversed bit on the board
-	int bit, revbit, rowbit = (1 << rowidx), revrowbit = Integer.reverse(rowbit) >>> (32 - getN());
-	int free = ~(ld | rd | col | (ldbot >>> (getN() - 1 - 2 * rowidx)) | (rdbot << (getN() - 1 - 2 * rowidx)))
-		& mask;
-
-	while ((free & mask) > 0) {
-
-	    bit = free & (-free);
-	    revbit = Integer.reverse(bit) >>> (32 - getN());
-	    free &= ~bit;
-
-	    rot90Solver((ld | bit | revbit) << 1, (rd | bit | revbit) >>> 1, col | bit | revbit | rowbit | revrowbit,
-		    (ldbot | bit | revbit) >>> 1, (rdbot | bit | revbit) << 1, row | rowbit | revrowbit | bit | revbit,
-		    rowidx + 1, queens + 1);
+	if (isCancelRequested() && solvedSubSearches.get() < subSearches) {
+	    end = System.currentTimeMillis() - getPausedDuration(); // the paused time does not count
+	    throw new CancellationException("sym solver was canceled");
 	}
-    }
 
-    // similar to 90 degree symmetric solver, just with less extra constraints
-    // main idea in both solvers is, to set a queen and also the queen that comes
-    // from rotation by
-    // 180 degrees
-    // realize occupation by solving board from top to bottom and vice versa
-    // simultaneously
-    private void rot180Solver(int ld, int rd, int col, int ldbot, int rdbot, int rowidx) {
-	if(cancel)
-	    return;
-	
-	if (rowidx == getN() / 2) {
-	    solutions180++;
-	    return;
-	}
-	int free = (~(ld | rd | col | (ldbot >>> (getN() - 1 - 2 * rowidx)) | (rdbot << (getN() - 1 - 2 * rowidx))))
-		& (int) mask;
-	int bit, revbit;
-
-	while ((free & mask) > 0) {
-	    bit = free & (-free);
-	    revbit = Integer.reverse(bit) >>> (32 - getN());
-	    free &= ~bit;
+	// following values are the unique solution number with their respective
+	// symmetry ONLY
+	solutions90 = SymmetricSearch.solutions90(found90.get());
+	solutions180 = SymmetricSearch.solutions180(found90.get(), found180.get());
 
-	    rot180Solver((ld | bit) << 1, (rd | bit) >>> 1, col | bit | revbit, (ldbot | revbit) >>> 1,
-		    (rdbot | revbit) << 1, rowidx + 1);
-	}
+	end = System.currentTimeMillis() - getPausedDuration(); // the paused time does not count
     }
 
     public long getSolutions90() {
@@ -117,6 +123,10 @@ public class SymSolver extends AbstractSolver {
     }
 
     public long getUniqueSolutionsTotal(long solutions) {
+	// the single solution of N=1 is not mirrored by any symmetry, unlike the 90
+	// degree symmetric solutions the formula expects
+	if (getN() == 1)
+	    return solutions;
 	return solutions == 0 ? 0 : (solutions + 4 * solutions180 + 6 * solutions90) / 8;
     }
 
@@ -125,26 +135,33 @@ public class SymSolver extends AbstractSolver {
 	if (end != 0)
 	    return end - start;
 	else
-	    return System.currentTimeMillis() - start;
+	    return System.currentTimeMillis() - start - getPausedDuration();
     }
 
     @Override
     public float getProgress() {
-	return 0;
+	if (subSearches == 0)
+	    return 0;
+	return (float) solvedSubSearches.get() / subSearches;
     }
 
+    /**
+     * Returns the number of unique solutions that are symmetric by rotation found
+     * so far.
+     */
     @Override
     public long getSolutions() {
-	return 0;
+	final long found90 = this.found90.get();
+	return SymmetricSearch.solutions180(found90, found180.get()) + SymmetricSearch.solutions90(found90);
     }
     
     @Override
     public void reset() {
 	start = end = 0;
 	solutions90 = solutions180 = 0;
-    }
-    
-    public void cancel() {
-	cancel = true;
+	found90.set(0);
+	found180.set(0);
+	solvedSubSearches.set(0);
+	subSearches = 0;
     }
 }
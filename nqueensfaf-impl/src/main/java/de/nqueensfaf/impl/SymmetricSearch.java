@@ -0,0 +1,164 @@
+package de.nqueensfaf.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+// searches the solutions that are symmetric by a rotation of 90 or 180 degrees
+// main idea is to set a queen together with the queens that come from rotating it,
+// the board is solved from top to bottom and vice versa simultaneously, so the
+// search is done when it reaches the middle row
+// the search for 180 degree symmetric solutions counts every 180 and every 90
+// degree symmetric solution 4 times, the search for 90 degree symmetric solutions
+// counts every 90 degree symmetric solution twice (see solutions90() and
+// solutions180())
+// the searches are split into sub searches by placing the queens of the first rows,
+// the sub searches can be solved independently of each other
+// used by the SymSolver and the UniqueSolutionsCounter
+class SymmetricSearch {
+
+    private final int n, mask;
+    // stops the recursions, the result of an aborted sub search is incomplete
+    private final BooleanSupplier aborted;
+
+    SymmetricSearch(int n, BooleanSupplier aborted) {
+	this.n = n;
+	this.aborted = aborted;
+	mask = (1 << n) - 1;
+    }
+
+    // the unique solutions that are symmetric by a rotation of 90 degrees
+    static long solutions90(long found90) {
+	return found90 / 2;
+    }
+
+    // the unique solutions that are symmetric by a rotation of 180, but not 90
+    // degrees
+    static long solutions180(long found90, long found180) {
+	return Math.max(0, (found180 - found90) / 4);
+    }
+
+    // splits both searches until there are at least the given number of sub
+    // searches or none are left
+    // the solutions of the sub searches that already reach the middle row are added
+    // to found90 and found180
+    List<SubSearch> subSearches(int count, AtomicLong found90, AtomicLong found180) {
+	final int L = 1 << (n - 1);
+
+	// occupies the middle column, if the board has odd size
+	int mid = (n % 2) * (1 << (n / 2));
+
+	// the main diagonals can only be occupied, if the corresponding queen is in the
+	// middle of the board
+	// this can only be the case for odd n
+	// the queen in the middle of the board never has to be set - if we reach the
+	// middle row, we already found a solution
+	List<SubSearch> searches = new ArrayList<SubSearch>();
+	searches.add(new SubSearch(false, 1, L, mid, L, 1, 0, 0));
+	searches.add(new SubSearch(true, 1, L, mid, L, 1, mid, 0));
+	while (!searches.isEmpty() && searches.size() < count)
+	    searches = split(searches, found90, found180);
+	return searches;
+    }
+
+    // the number of times the sub search finds its solutions, see above
+    long solve(SubSearch s) {
+	if (s.rot90())
+	    return rot90Solver(s.ld(), s.rd(), s.col(), s.ldbot(), s.rdbot(), s.row(), s.rowidx());
+	return rot180Solver(s.ld(), s.rd(), s.col(), s.ldbot(), s.rdbot(), s.rowidx());
+    }
+
+    // places the queens of the next row (and their images) in all sub searches
+    // sub searches that reach the middle row are counted and dropped
+    private List<SubSearch> split(List<SubSearch> searches, AtomicLong found90, AtomicLong found180) {
+	var subSearches = new ArrayList<SubSearch>();
+	for (var s : searches) {
+	    final int ld = s.ld(), rd = s.rd(), col = s.col(), ldbot = s.ldbot(), rdbot = s.rdbot(), row = s.row(),
+		    rowidx = s.rowidx();
+	    if (rowidx == n / 2) {
+		(s.rot90() ? found90 : found180).incrementAndGet();
+		continue;
+	    }
+	    if (s.rot90() && ((row >>> rowidx) & 1) > 0) {
+		subSearches.add(new SubSearch(true, ld << 1, rd >>> 1, col, ldbot >>> 1, rdbot << 1, row, rowidx + 1));
+		continue;
+	    }
+
+	    int rowbit = (1 << rowidx), revrowbit = Integer.reverse(rowbit) >>> (32 - n);
+	    int free = ~(ld | rd | col | (ldbot >>> (n - 1 - 2 * rowidx)) | (rdbot << (n - 1 - 2 * rowidx))) & mask;
+	    while (free > 0) {
+		int bit = free & (-free);
+		int revbit = Integer.reverse(bit) >>> (32 - n);
+		free &= ~bit;
+
+		// same as in the recursions
+		if (s.rot90())
+		    subSearches.add(new SubSearch(true, (ld | bit | revbit) << 1, (rd | bit | revbit) >>> 1,
+			    col | bit | revbit | rowbit | revrowbit, (ldbot | bit | revbit) >>> 1,
+			    (rdbot | bit | revbit) << 1, row | rowbit | revrowbit | bit | revbit, rowidx + 1));
+		else
+		    subSearches.add(new SubSearch(false, (ld | bit) << 1, (rd | bit) >>> 1, col | bit | revbit,
+			    (ldbot | revbit) >>> 1, (rdbot | revbit) << 1, 0, rowidx + 1));
+	    }
+	}
+	return subSearches;
+    }
+
+    private long rot90Solver(int ld, int rd, int col, int ldbot, int rdbot, int row, int rowidx) {
+	if (aborted.getAsBoolean())
+	    return 0;
+
+	// in the mid row we are done
+	if (rowidx == n / 2)
+	    return 1;
+	// by rotating 90 degrees we can occupy a row before we reached it
+	// in this case just skip
+	if (((row >>> rowidx) & 1) > 0)
+	    return rot90Solver(ld << 1, rd >>> 1, col, ldbot >>> 1, rdbot << 1, row, rowidx + 1);
+
+	// revbit is reversed bit on the board
+	int bit, revbit, rowbit = (1 << rowidx), revrowbit = Integer.reverse(rowbit) >>> (32 - n);
+	int free = ~(ld | rd | col | (ldbot >>> (n - 1 - 2 * rowidx)) | (rdbot << (n - 1 - 2 * rowidx))) & mask;
+	long solutions = 0;
+
+	while ((free & mask) > 0) {
+
+	    bit = free & (-free);
+	    revbit = Integer.reverse(bit) >>> (32 - n);
+	    free &= ~bit;
+
+	    solutions += rot90Solver((ld | bit | revbit) << 1, (rd | bit | revbit) >>> 1,
+		    col | bit | revbit | rowbit | revrowbit, (ldbot | bit | revbit) >>> 1, (rdbot | bit | revbit) << 1,
+		    row | rowbit | revrowbit | bit | revbit, rowidx + 1);
+	}
+	return solutions;
+    }
+
+    // similar to 90 degree symmetric solver, just with less extra constraints
+    private long rot180Solver(int ld, int rd, int col, int ldbot, int rdbot, int rowidx) {
+	if (aborted.getAsBoolean())
+	    return 0;
+
+	if (rowidx == n / 2)
+	    return 1;
+	int free = (~(ld | rd | col | (ldbot >>> (n - 1 - 2 * rowidx)) | (rdbot << (n - 1 - 2 * rowidx)))) & mask;
+	int bit, revbit;
+	long solutions = 0;
+
+	while ((free & mask) > 0) {
+	    bit = free & (-free);
+	    revbit = Integer.reverse(bit) >>> (32 - n);
+	    free &= ~bit;
+
+	    solutions += rot180Solver((ld | bit) << 1, (rd | bit) >>> 1, col | bit | revbit, (ldbot | revbit) >>> 1,
+		    (rdbot | revbit) << 1, rowidx + 1);
+	}
+	return solutions;
+    }
+
+    // the arguments of rot90Solver() or rot180Solver() (row is only used by
+    // rot90Solver())
+    record SubSearch(boolean rot90, int ld, int rd, int col, int ldbot, int rdbot, int row, int rowidx) {
+    }
+}
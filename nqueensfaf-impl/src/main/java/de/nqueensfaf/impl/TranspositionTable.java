@@ -0,0 +1,90 @@
+package de.nqueensfaf.impl;
+
+// hash table of the number of solutions of sub boards, used by the CpuSolverThread
+// to not count the same state of the last rows of the board more than once
+// a state consists of ld, rd and col of a row, the number of rows to the last free
+// row (endmark) and whether the rightmost column of the last row is excluded (d=2)
+// each thread has its own table, so no synchronization is needed
+// the table has a fixed size and consists of buckets of 2 entries; when a bucket is
+// full, the entry with fewer rows (i.e. the cheaper one to recount) is replaced
+class TranspositionTable {
+
+    // bytes per entry (2 key longs and the value)
+    static final int ENTRY_SIZE = 24;
+
+    private static final long VALID = 1L << 63;
+
+    private final int smallmask;
+    private final long[] keys1, keys2, values;
+    private final int bucketMask;
+    private long lookups, hits;
+
+    TranspositionTable(int n, long memory) {
+	smallmask = (1 << (n - 2)) - 1;
+	long entries = Long.highestOneBit(Math.max(memory / ENTRY_SIZE, 2));
+	entries = Math.min(entries, 1 << 30);
+	keys1 = new long[(int) entries];
+	keys2 = new long[(int) entries];
+	values = new long[(int) entries];
+	bucketMask = (int) (entries / 2 - 1);
+    }
+
+    // returns the number of solutions of the state or -1 if it is not in the table
+    long get(int ld, int rd, int col, int rows, boolean d2) {
+	lookups++;
+	final long key1 = key1(ld, rd), key2 = key2(col, rows, d2);
+	final int i = bucket(key1, key2);
+	if (keys1[i] == key1 && keys2[i] == key2) {
+	    hits++;
+	    return values[i];
+	}
+	if (keys1[i + 1] == key1 && keys2[i + 1] == key2) {
+	    hits++;
+	    return values[i + 1];
+	}
+	return -1;
+    }
+
+    void put(int ld, int rd, int col, int rows, boolean d2, long solutions) {
+	final long key1 = key1(ld, rd), key2 = key2(col, rows, d2);
+	int i = bucket(key1, key2);
+	if (keys2[i] != 0 && keys2[i + 1] == 0)
+	    i++;
+	else if (keys2[i] != 0 && rows(keys2[i + 1]) <= rows(keys2[i]))
+	    i++;
+	keys1[i] = key1;
+	keys2[i] = key2;
+	values[i] = solutions;
+    }
+
+    long getLookups() {
+	return lookups;
+    }
+
+    long getHits() {
+	return hits;
+    }
+
+    void resetStatistics() {
+	lookups = hits = 0;
+    }
+
+    // bits of ld left of the board never get back onto it, rd is never negative
+    private long key1(int ld, int rd) {
+	return ((long) rd << 32) | (ld & smallmask);
+    }
+
+    private long key2(int col, int rows, boolean d2) {
+	return VALID | (d2 ? 1L << 40 : 0) | ((long) rows << 32) | (col & smallmask);
+    }
+
+    private static int rows(long key2) {
+	return (int) (key2 >>> 32) & 0xff;
+    }
+
+    private int bucket(long key1, long key2) {
+	long h = key1 * 0x9E3779B97F4A7C15L ^ key2 * 0xC2B2AE3D27D4EB4FL;
+	h ^= h >>> 29;
+	return ((int) h & bucketMask) << 1;
+    }
+}
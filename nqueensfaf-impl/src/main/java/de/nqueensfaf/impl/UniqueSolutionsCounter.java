@@ -0,0 +1,60 @@
+package de.nqueensfaf.impl;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+// counts the unique solutions (up to rotation and reflection) of a board from the
+// solutions of its constellations and the solutions that are symmetric by rotation
+// a unique solution has 8 distinct images, unless it is symmetric by a rotation of
+// 180 degrees (4 images) or 90 degrees (2 images), so there are (solutions + 4 *
+// rot180 symmetric + 6 * rot90 symmetric unique solutions) / 8 unique ones, like in
+// SymSolver.getUniqueSolutionsTotal()
+// the symmetric solutions are counted by the sub searches of the SymmetricSearch
+class UniqueSolutionsCounter {
+
+    // sub searches for counting the symmetric solutions
+    private static final int SUB_SEARCHES = 64;
+
+    private final int n;
+    // solutions including the symmetry factor
+    private final AtomicLong solutions = new AtomicLong(0);
+    // solutions found by the symmetric searches, see SymmetricSearch
+    private final AtomicLong found90 = new AtomicLong(0), found180 = new AtomicLong(0);
+
+    UniqueSolutionsCounter(int n) {
+	this.n = n;
+    }
+
+    // adds the solutions (including the symmetry factor) of a (sub) constellation
+    void add(long constellationSolutions) {
+	solutions.addAndGet(constellationSolutions);
+    }
+
+    // counts the solutions of the board that are symmetric by rotation
+    // proceed is called before each sub search and returns false if the counting
+    // should stop, like AbstractSolver.awaitResume(), aborted stops the current sub
+    // search
+    // returns false if the counting was stopped, the count is incomplete then
+    boolean countSymmetricSolutions(BooleanSupplier proceed, BooleanSupplier aborted) {
+	var search = new SymmetricSearch(n, aborted);
+	for (var s : search.subSearches(SUB_SEARCHES, found90, found180)) {
+	    if (!proceed.getAsBoolean())
+		return false;
+	    final long found = search.solve(s);
+	    if (aborted.getAsBoolean())
+		return false;
+	    (s.rot90() ? found90 : found180).addAndGet(found);
+	}
+	return true;
+    }
+
+    long getUniqueSolutions() {
+	// the single solution of N=1 has only one image, see
+	// SymSolver.getUniqueSolutionsTotal()
+	if (n == 1)
+	    return solutions.get();
+	final long found90 = this.found90.get();
+	return (solutions.get() + 4 * SymmetricSearch.solutions180(found90, found180.get())
+		+ 6 * SymmetricSearch.solutions90(found90)) / 8;
+    }
+}
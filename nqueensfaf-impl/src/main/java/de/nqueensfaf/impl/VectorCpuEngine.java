@@ -0,0 +1,236 @@
+package de.nqueensfaf.impl;
+
+import static de.nqueensfaf.impl.ConstellationUtils.getJkl;
+import static de.nqueensfaf.impl.ConstellationUtils.jklQueens;
+import static de.nqueensfaf.impl.ConstellationUtils.startCol;
+import static de.nqueensfaf.impl.ConstellationUtils.startLd;
+import static de.nqueensfaf.impl.ConstellationUtils.startRd;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Supplier;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+// solves multiple constellations at once in lock-step, one constellation per lane of
+// an IntVector, using the same algorithm as the JklMaskCpuEngine (and the gpu
+// kernel)
+// each lane does one step per iteration (place the next queen or go back one row)
+// and has its own jkl queens table and stack, so that lanes can be refilled with
+// the next constellation as soon as they are finished
+// when aborted returns true, the constellations in the lanes are left unsolved
+// only use this class if the module jdk.incubator.vector is available
+class VectorCpuEngine {
+
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+    private final int n, lanes;
+    private final BooleanSupplier aborted;
+    private final Map<Integer, int[]> jklQueensCache = new HashMap<Integer, int[]>();
+
+    // jkl queens tables and stacks, indexed by lane * n + row
+    private final int[] jklQueens, ldStack, rdStack, colStack, freeStack;
+    // per lane state
+    private final int[] rows, lds, rds, cols, frees, starts, counters, indices;
+    private final boolean[] active;
+    private final long[] solutions;
+    private final Constellation[] constellations;
+
+    private long steps, activeLaneSteps;
+
+    VectorCpuEngine(int n, BooleanSupplier aborted) {
+	this.n = n;
+	this.aborted = aborted;
+	lanes = SPECIES.length();
+	jklQueens = new int[lanes * n];
+	ldStack = new int[lanes * n];
+	rdStack = new int[lanes * n];
+	colStack = new int[lanes * n];
+	freeStack = new int[lanes * n];
+	rows = new int[lanes];
+	lds = new int[lanes];
+	rds = new int[lanes];
+	cols = new int[lanes];
+	frees = new int[lanes];
+	starts = new int[lanes];
+	counters = new int[lanes];
+	indices = new int[lanes];
+	active = new boolean[lanes];
+	solutions = new long[lanes];
+	constellations = new Constellation[lanes];
+    }
+
+    static int lanes() {
+	return SPECIES.length();
+    }
+
+    long getSteps() {
+	return steps;
+    }
+
+    long getActiveLaneSteps() {
+	return activeLaneSteps;
+    }
+
+    // solves the given constellation and all constellations that the supplier
+    // provides until it returns null, the number of solutions of each constellation
+    // (without the symmetry factor) is passed to the consumer
+    void solve(Constellation first, Supplier<Constellation> next, ObjLongConsumer<Constellation> solved) {
+	final int lastRow = n - 2;
+	final IntVector laneOffsets = IntVector.zero(SPECIES).addIndex(n);
+
+	// fill all lanes
+	fill(0, first, next, solved);
+	for (int lane = 1; lane < lanes; lane++)
+	    fill(lane, next.get(), next, solved);
+
+	IntVector row = IntVector.fromArray(SPECIES, rows, 0);
+	IntVector ld = IntVector.fromArray(SPECIES, lds, 0);
+	IntVector rd = IntVector.fromArray(SPECIES, rds, 0);
+	IntVector col = IntVector.fromArray(SPECIES, cols, 0);
+	IntVector free = IntVector.fromArray(SPECIES, frees, 0);
+	IntVector start = IntVector.fromArray(SPECIES, starts, 0);
+	IntVector counter = IntVector.zero(SPECIES);
+	VectorMask<Integer> running = VectorMask.fromArray(SPECIES, active, 0);
+
+	while (running.anyTrue()) {
+	    steps++;
+	    activeLaneSteps += running.trueCount();
+
+	    // lanes with a free field in the current row place the next queen there
+	    final VectorMask<Integer> placing = free.compare(VectorOperators.NE, 0).and(running);
+	    final VectorMask<Integer> backtracking = running.andNot(placing);
+	    final IntVector bit = free.and(free.neg());
+	    free = free.sub(bit);
+
+	    final IntVector nextRow = row.add(1);
+	    final IntVector nextLd = ld.or(bit).lanewise(VectorOperators.LSHL, 1);
+	    final IntVector nextRd = rd.or(bit).lanewise(VectorOperators.LSHR, 1);
+	    final IntVector nextCol = col.or(bit);
+	    nextRow.add(laneOffsets).intoArray(indices, 0);
+	    final IntVector nextFree = nextLd.or(nextRd).or(nextCol)
+		    .or(IntVector.fromArray(SPECIES, jklQueens, 0, indices, 0)).not();
+
+	    final VectorMask<Integer> last = nextRow.compare(VectorOperators.EQ, lastRow).and(placing);
+	    final VectorMask<Integer> nextFreeNotEmpty = nextFree.compare(VectorOperators.NE, 0);
+	    counter = counter.add(1, last.and(nextFreeNotEmpty));
+
+	    // go to the next row, remember the current one
+	    // gathers and scatters are not masked, all indices are valid and the stack
+	    // entry of the current row of a lane is not used until the lane goes to the
+	    // next row
+	    final VectorMask<Integer> descending = placing.andNot(last).and(nextFreeNotEmpty);
+	    if (descending.anyTrue()) {
+		row.add(laneOffsets).intoArray(indices, 0);
+		ld.intoArray(ldStack, 0, indices, 0);
+		rd.intoArray(rdStack, 0, indices, 0);
+		col.intoArray(colStack, 0, indices, 0);
+		free.intoArray(freeStack, 0, indices, 0);
+		row = row.blend(nextRow, descending);
+		ld = ld.blend(nextLd, descending);
+		rd = rd.blend(nextRd, descending);
+		col = col.blend(nextCol, descending);
+		free = free.blend(nextFree, descending);
+	    }
+
+	    // go back one row, or finish the constellation if we are back at its start
+	    if (backtracking.anyTrue()) {
+		final VectorMask<Integer> finished = backtracking.and(row.compare(VectorOperators.EQ, start));
+		final VectorMask<Integer> popping = backtracking.andNot(finished);
+		if (popping.anyTrue()) {
+		    row = row.sub(1, popping);
+		    row.add(laneOffsets).intoArray(indices, 0);
+		    ld = ld.blend(IntVector.fromArray(SPECIES, ldStack, 0, indices, 0), popping);
+		    rd = rd.blend(IntVector.fromArray(SPECIES, rdStack, 0, indices, 0), popping);
+		    col = col.blend(IntVector.fromArray(SPECIES, colStack, 0, indices, 0), popping);
+		    free = free.blend(IntVector.fromArray(SPECIES, freeStack, 0, indices, 0), popping);
+		}
+		if (finished.anyTrue()) {
+		    row.intoArray(rows, 0);
+		    ld.intoArray(lds, 0);
+		    rd.intoArray(rds, 0);
+		    col.intoArray(cols, 0);
+		    free.intoArray(frees, 0);
+		    start.intoArray(starts, 0);
+		    counter.intoArray(counters, 0);
+		    for (int lane = 0; lane < lanes; lane++) {
+			solutions[lane] += counters[lane];
+			if (finished.laneIsSet(lane)) {
+			    solved.accept(constellations[lane], solutions[lane]);
+			    fill(lane, next.get(), next, solved);
+			}
+		    }
+		    row = IntVector.fromArray(SPECIES, rows, 0);
+		    ld = IntVector.fromArray(SPECIES, lds, 0);
+		    rd = IntVector.fromArray(SPECIES, rds, 0);
+		    col = IntVector.fromArray(SPECIES, cols, 0);
+		    free = IntVector.fromArray(SPECIES, frees, 0);
+		    start = IntVector.fromArray(SPECIES, starts, 0);
+		    counter = IntVector.zero(SPECIES);
+		    running = VectorMask.fromArray(SPECIES, active, 0);
+		}
+	    }
+
+	    // the lanes solve different rows, so aborted is checked every few steps
+	    // instead
+	    if ((steps & ((1 << 12) - 1)) == 0 && aborted.getAsBoolean())
+		return;
+
+	    // the int counters must not overflow
+	    if ((steps & ((1 << 30) - 1)) == 0) {
+		counter.intoArray(counters, 0);
+		for (int lane = 0; lane < lanes; lane++)
+		    solutions[lane] += counters[lane];
+		counter = IntVector.zero(SPECIES);
+	    }
+	}
+    }
+
+    // put the constellation into the lane, constellations without any free rows are
+    // solved directly and replaced by the next one
+    private void fill(int lane, Constellation constellation, Supplier<Constellation> next,
+	    ObjLongConsumer<Constellation> solved) {
+	while (constellation != null) {
+	    final int ijkl = constellation.getIjkl();
+	    final int start = constellation.getStart();
+	    final int[] laneJklQueens = jklQueensCache.computeIfAbsent(getJkl(ijkl), jkl -> jklQueens(n, ijkl));
+	    System.arraycopy(laneJklQueens, 0, jklQueens, lane * n, n);
+
+	    // same start values as in the JklMaskCpuEngine
+	    final int ld = startLd(n, constellation), rd = startRd(n, constellation), col = startCol(n, constellation);
+
+	    // all queens are placed already, if start is past the last free row
+	    if (start > n - 2) {
+		solved.accept(constellation, 1);
+		constellation = next.get();
+		continue;
+	    }
+	    int free = ~(ld | rd | col | laneJklQueens[start]);
+
+	    if (start == n - 2) {
+		solved.accept(constellation, free != 0 ? 1 : 0);
+		constellation = next.get();
+		continue;
+	    }
+	    rows[lane] = starts[lane] = start;
+	    lds[lane] = ld;
+	    rds[lane] = rd;
+	    cols[lane] = col;
+	    frees[lane] = free;
+	    solutions[lane] = 0;
+	    constellations[lane] = constellation;
+	    active[lane] = true;
+	    return;
+	}
+	constellations[lane] = null;
+	active[lane] = false;
+	rows[lane] = starts[lane] = 0;
+	lds[lane] = rds[lane] = cols[lane] = frees[lane] = 0;
+	solutions[lane] = 0;
+    }
+}